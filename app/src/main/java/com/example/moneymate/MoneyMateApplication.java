@@ -0,0 +1,14 @@
+package com.example.moneymate;
+
+import android.app.Application;
+
+import com.example.moneymate.services.RateRefreshWorker;
+
+public class MoneyMateApplication extends Application {
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Keep exchange rates warm so the first screen does not wait on the network
+        RateRefreshWorker.schedulePeriodic(this);
+    }
+}
@@ -1,13 +1,8 @@
 package com.example.moneymate.activitiy;
 
-import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.graphics.Color;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.MenuItem;
@@ -17,9 +12,12 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
+import com.example.moneymate.services.CurrencyCode;
 import com.example.moneymate.services.CurrencyService;
 import com.example.moneymate.database.DatabaseHelper;
 import com.example.moneymate.R;
+import com.example.moneymate.utils.ConnectivityMonitor;
+import com.example.moneymate.utils.DateFormats;
 import com.example.moneymate.utils.NetworkUtils;
 import com.github.mikephil.charting.charts.PieChart;
 import com.github.mikephil.charting.data.PieData;
@@ -28,7 +26,7 @@ import com.github.mikephil.charting.data.PieEntry;
 import com.github.mikephil.charting.formatter.PercentFormatter;
 import com.github.mikephil.charting.utils.ColorTemplate;
 import java.text.NumberFormat;
-import java.text.SimpleDateFormat;
+import java.time.YearMonth;
 import java.util.*;
 
 public class ChartActivity extends AppCompatActivity {
@@ -38,9 +36,8 @@ public class ChartActivity extends AppCompatActivity {
     private PieChart pieChart;
     private TextView tvMonth, tvTotalExpense, tvEmptyMessage, tvNetworkStatus;
     private Button btnPrevMonth, btnNextMonth, btnRefresh;
-    private Calendar currentMonth;
+    private YearMonth currentMonth;
     private NumberFormat currencyFormat;
-    private SimpleDateFormat monthFormat;
     private String displayCurrency;
     private String originalDisplayCurrency; // Store original currency preference
     private SharedPreferences prefs;
@@ -49,7 +46,6 @@ public class ChartActivity extends AppCompatActivity {
     private Map<String, String> currencySymbols;
 
     // Network monitoring
-    private NetworkChangeReceiver networkReceiver;
     private boolean wasOnline = true;
     private boolean hasShownOfflineMessage = false;
 
@@ -104,14 +100,13 @@ public class ChartActivity extends AppCompatActivity {
             originalDisplayCurrency = prefs.getString(KEY_DISPLAY_CURRENCY, "IDR");
             displayCurrency = originalDisplayCurrency;
 
-            dbHelper = new DatabaseHelper(this);
-            currencyService = new CurrencyService(this);
+            dbHelper = DatabaseHelper.getInstance(this);
+            currencyService = CurrencyService.getInstance(this);
 
             initializeCurrencySymbols();
             updateCurrencyFormat();
 
-            monthFormat = new SimpleDateFormat("MMMM yyyy", Locale.getDefault());
-            currentMonth = Calendar.getInstance();
+            currentMonth = YearMonth.now();
 
             // Check initial network status
             wasOnline = NetworkUtils.isNetworkAvailable(this);
@@ -142,7 +137,7 @@ public class ChartActivity extends AppCompatActivity {
             btnPrevMonth.setOnClickListener(v -> {
                 Log.d(TAG, "Previous month button clicked");
                 if (currentMonth != null) {
-                    currentMonth.add(Calendar.MONTH, -1);
+                    currentMonth = currentMonth.minusMonths(1);
                     loadChartData();
                 } else {
                     Log.e(TAG, "currentMonth is null!");
@@ -152,7 +147,7 @@ public class ChartActivity extends AppCompatActivity {
             btnNextMonth.setOnClickListener(v -> {
                 Log.d(TAG, "Next month button clicked");
                 if (currentMonth != null) {
-                    currentMonth.add(Calendar.MONTH, 1);
+                    currentMonth = currentMonth.plusMonths(1);
                     loadChartData();
                 } else {
                     Log.e(TAG, "currentMonth is null!");
@@ -166,9 +161,8 @@ public class ChartActivity extends AppCompatActivity {
     }
 
     private void setupNetworkMonitoring() {
-        networkReceiver = new NetworkChangeReceiver();
-        IntentFilter filter = new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION);
-        registerReceiver(networkReceiver, filter);
+        // Removed again when this activity is destroyed
+        ConnectivityMonitor.getInstance(this).observe(this, this::onConnectivityChanged);
     }
 
     private void handleRefreshClick() {
@@ -211,10 +205,11 @@ public class ChartActivity extends AppCompatActivity {
     private void updateCurrencyFormat() {
         try {
             String symbol = currencySymbols.getOrDefault(displayCurrency, displayCurrency);
-            if (displayCurrency.equals("IDR") || !NetworkUtils.isNetworkAvailable(this)) {
+            boolean isOnline = NetworkUtils.isNetworkAvailable(this);
+            if (displayCurrency.equals("IDR") || !isOnline) {
                 // Gunakan format IDR jika mata uang adalah IDR atau tidak ada jaringan
                 currencyFormat = NumberFormat.getCurrencyInstance(new Locale("id", "ID"));
-                if (!NetworkUtils.isNetworkAvailable(this)) {
+                if (!isOnline) {
                     displayCurrency = "IDR"; // Force IDR when offline
                 }
             } else {
@@ -273,8 +268,8 @@ public class ChartActivity extends AppCompatActivity {
                 updateCurrencyFormat();
             }
 
-            if (tvMonth != null && monthFormat != null && currentMonth != null) {
-                tvMonth.setText(monthFormat.format(currentMonth.getTime()));
+            if (tvMonth != null && currentMonth != null) {
+                tvMonth.setText(DateFormats.month().format(currentMonth));
             }
 
             if (dbHelper == null) {
@@ -284,9 +279,7 @@ public class ChartActivity extends AppCompatActivity {
             }
 
             // Get data from database
-            List<DatabaseHelper.CategorySpending> categorySpending = dbHelper.getCategorySpending(
-                    currentMonth.get(Calendar.YEAR),
-                    currentMonth.get(Calendar.MONTH));
+            List<DatabaseHelper.CategorySpending> categorySpending = dbHelper.getCategorySpending(currentMonth);
 
             // Store current data for potential re-conversion
             currentCategorySpending = categorySpending;
@@ -447,21 +440,20 @@ public class ChartActivity extends AppCompatActivity {
 
             ArrayList<PieEntry> entries = new ArrayList<>();
 
-            for (DatabaseHelper.CategorySpending spending : categorySpending) {
-                double amount = spending.getAmount();
+            double[] amounts = new double[categorySpending.size()];
+            for (int i = 0; i < amounts.length; i++) {
+                amounts[i] = categorySpending.get(i).getAmount();
+            }
 
-                // Convert individual category amounts if needed
-                if (!displayCurrency.equals("IDR") && currencyService != null) {
-                    try {
-                        amount = currencyService.convertCurrency(amount, "IDR", displayCurrency);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error converting category amount", e);
-                        // Use original amount if conversion fails
-                    }
-                }
+            // Convert all category amounts with one rate lookup if needed
+            CurrencyCode target = CurrencyCode.fromCode(displayCurrency);
+            if (target != null && target != CurrencyCode.IDR && currencyService != null) {
+                currencyService.convertAll(amounts, CurrencyCode.IDR, target);
+            }
 
-                float percentage = (float) ((amount / totalExpense) * 100);
-                entries.add(new PieEntry(percentage, spending.getCategory()));
+            for (int i = 0; i < amounts.length; i++) {
+                float percentage = (float) ((amounts[i] / totalExpense) * 100);
+                entries.add(new PieEntry(percentage, categorySpending.get(i).getCategory()));
             }
 
             PieDataSet dataSet = new PieDataSet(entries, "");
@@ -506,26 +498,23 @@ public class ChartActivity extends AppCompatActivity {
         return colors;
     }
 
-    // Network monitoring receiver
-    private class NetworkChangeReceiver extends BroadcastReceiver {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            boolean isOnline = NetworkUtils.isNetworkAvailable(context);
-
-            Log.d(TAG, "Network status changed. Was online: " + wasOnline + ", Now online: " + isOnline);
-
-            if (wasOnline && !isOnline) {
-                // Network just went offline
-                Log.d(TAG, "Network disconnected");
-                handleNetworkDisconnected();
-            } else if (!wasOnline && isOnline) {
-                // Network just came back online
-                Log.d(TAG, "Network reconnected");
-                handleNetworkReconnected();
-            }
+    // Network monitoring, on the main thread
+    private void onConnectivityChanged(ConnectivityMonitor.State state) {
+        boolean isOnline = state.isConnected();
+
+        Log.d(TAG, "Network status changed. Was online: " + wasOnline + ", Now online: " + isOnline);
 
-            wasOnline = isOnline;
+        if (wasOnline && !isOnline) {
+            // Network just went offline
+            Log.d(TAG, "Network disconnected");
+            handleNetworkDisconnected();
+        } else if (!wasOnline && isOnline) {
+            // Network just came back online
+            Log.d(TAG, "Network reconnected");
+            handleNetworkReconnected();
         }
+
+        wasOnline = isOnline;
     }
 
     private void handleNetworkDisconnected() {
@@ -613,15 +602,6 @@ public class ChartActivity extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
 
-        // Unregister network receiver
-        if (networkReceiver != null) {
-            try {
-                unregisterReceiver(networkReceiver);
-            } catch (Exception e) {
-                Log.e(TAG, "Error unregistering network receiver", e);
-            }
-        }
-
         // Clean up resources
         pieChart = null;
         dbHelper = null;
@@ -20,12 +20,12 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
 import com.example.moneymate.services.CurrencyService;
+import com.example.moneymate.utils.DateFormats;
 import com.example.moneymate.utils.NetworkUtils;
 import com.example.moneymate.R;
 
 import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalDateTime;
 import java.util.Map;
 
 public class CurrencyActivity extends AppCompatActivity {
@@ -56,14 +56,14 @@ public class CurrencyActivity extends AppCompatActivity {
         if (!NetworkUtils.isNetworkAvailable(this)) {
             showNoNetwork();
         } else {
-            loadExchangeRates();
+            loadExchangeRates(false);
         }
     }
 
     private void initViews() {
         setupToolbar();
 
-        currencyService = new CurrencyService(this);
+        currencyService = CurrencyService.getInstance(this);
         decimalFormat = new DecimalFormat("#,##0.00####"); // Allow more decimal places for small amounts
 
         // Initialize views
@@ -89,7 +89,7 @@ public class CurrencyActivity extends AppCompatActivity {
         btnRetry.setOnClickListener(v -> {
             if (NetworkUtils.isNetworkAvailable(this)) {
                 showContent();
-                loadExchangeRates();
+                loadExchangeRates(true);
             } else {
                 Toast.makeText(this, "Masih tidak ada koneksi internet", Toast.LENGTH_SHORT).show();
             }
@@ -102,7 +102,7 @@ public class CurrencyActivity extends AppCompatActivity {
             if (!NetworkUtils.isNetworkAvailable(this)) {
                 showNoNetwork();
             } else {
-                loadExchangeRates();
+                loadExchangeRates(true);
             }
         });
 
@@ -213,7 +213,8 @@ public class CurrencyActivity extends AppCompatActivity {
         }
     }
 
-    private void loadExchangeRates() {
+    // forceRefresh skips the in-memory rates, for the refresh button
+    private void loadExchangeRates(boolean forceRefresh) {
         if (!NetworkUtils.isNetworkAvailable(this)) {
             showNoNetwork();
             return;
@@ -226,7 +227,7 @@ public class CurrencyActivity extends AppCompatActivity {
         btnRefresh.setVisibility(View.GONE);
         tvResult.setText("Menunggu data...");
 
-        currencyService.getExchangeRates(new CurrencyService.CurrencyCallback() {
+        CurrencyService.CurrencyCallback callback = new CurrencyService.CurrencyCallback() {
             @Override
             public void onSuccess(Map<String, Double> rates) {
                 Log.d(TAG, "Exchange rates loaded successfully: " + rates.size() + " currencies");
@@ -234,7 +235,7 @@ public class CurrencyActivity extends AppCompatActivity {
                     isRatesLoaded = true;
                     progressBar.setVisibility(View.GONE);
                     tvLastUpdate.setText("Data terakhir diperbarui: " +
-                            new SimpleDateFormat("dd/MM/yyyy HH:mm").format(new Date()));
+                            DateFormats.numericDateTime().format(LocalDateTime.now()));
                     btnRefresh.setVisibility(View.VISIBLE);
 
                     // Trigger conversion if amount is already entered
@@ -276,7 +277,13 @@ public class CurrencyActivity extends AppCompatActivity {
                             "Tidak ada koneksi internet, menggunakan data cadangan", Toast.LENGTH_LONG).show();
                 });
             }
-        });
+        };
+
+        if (forceRefresh) {
+            currencyService.refreshExchangeRates(callback);
+        } else {
+            currencyService.getExchangeRates(callback);
+        }
     }
 
     private void convertCurrency() {
@@ -81,8 +81,8 @@ public class MainActivity extends AppCompatActivity {
 
     private void initializeComponents() {
         try {
-            dbHelper = new DatabaseHelper(this);
-            currencyService = new CurrencyService(this);
+            dbHelper = DatabaseHelper.getInstance(this);
+            currencyService = CurrencyService.getInstance(this);
             Log.d(TAG, "Components initialized successfully");
         } catch (Exception e) {
             Log.e(TAG, "Error initializing components: " + e.getMessage(), e);
@@ -223,18 +223,6 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        try {
-            if (dbHelper != null) {
-                dbHelper.close();
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error in onDestroy: " + e.getMessage(), e);
-        }
-    }
-
     @Override
     public void onBackPressed() {
         try {
@@ -7,13 +7,15 @@ import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.moneymate.services.CurrencyCode;
 import com.example.moneymate.services.CurrencyService;
 import com.example.moneymate.database.DatabaseHelper;
+import com.example.moneymate.database.DatabaseScheduler;
 import com.example.moneymate.R;
 import com.example.moneymate.models.Transaction;
+import com.example.moneymate.utils.DateFormats;
 
 import java.text.NumberFormat;
-import java.text.SimpleDateFormat;
 import java.util.Locale;
 import java.util.Map;
 
@@ -30,8 +32,8 @@ public class TransactionDetailActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_transaction_detail);
 
-        dbHelper = new DatabaseHelper(this);
-        currencyService = new CurrencyService(this);
+        dbHelper = DatabaseHelper.getInstance(this);
+        currencyService = CurrencyService.getInstance(this);
         displayCurrency = getSharedPreferences("MoneyMatePrefs", MODE_PRIVATE)
                 .getString("display_currency", "IDR");
 
@@ -65,15 +67,18 @@ public class TransactionDetailActivity extends AppCompatActivity {
         tvDescription.setText(transaction.getDescription());
         tvCategory.setText(transaction.getCategory());
         tvType.setText(transaction.getType().equals("income") ? "Pemasukan" : "Pengeluaran");
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault());
-        tvDate.setText(dateFormat.format(transaction.getDate()));
-
-        // Convert and display amount
-        double amount = transaction.getAmount();
-        if (!displayCurrency.equals("IDR")) {
-            amount = currencyService.convertCurrency(amount, "IDR", displayCurrency);
+        tvDate.setText(DateFormats.day().format(transaction.getLocalDate()));
+
+        // Convert at the rate of the transaction's date and display amount
+        showAmount(tvAmount);
+        CurrencyCode target = CurrencyCode.fromCode(displayCurrency);
+        if (target != null && target != CurrencyCode.IDR) {
+            long epochDay = transaction.getEpochDay();
+            DatabaseScheduler.getInstance().deliver(currencyService.prefetchHistoricalRates(epochDay, epochDay),
+                    this, loaded -> {
+                        if (loaded) showAmount(tvAmount);
+                    });
         }
-        tvAmount.setText(currencyFormat.format(amount));
         if (transaction.getType().equals("income")) {
             tvAmount.setTextColor(getResources().getColor(android.R.color.holo_green_dark));
         } else {
@@ -85,20 +90,33 @@ public class TransactionDetailActivity extends AppCompatActivity {
             new androidx.appcompat.app.AlertDialog.Builder(this)
                     .setTitle("Hapus Transaksi")
                     .setMessage("Apakah Anda yakin ingin menghapus transaksi ini?")
-                    .setPositiveButton("Ya", (dialog, which) -> {
-                        if (dbHelper.deleteTransaction(transaction.getId())) {
-                            Toast.makeText(this, "Transaksi berhasil dihapus", Toast.LENGTH_SHORT).show();
-                            setResult(RESULT_OK);
-                            finish();
-                        } else {
-                            Toast.makeText(this, "Gagal menghapus transaksi", Toast.LENGTH_SHORT).show();
-                        }
-                    })
+                    .setPositiveButton("Ya", (dialog, which) -> DatabaseScheduler.getInstance().deliver(
+                            dbHelper.deleteTransactionAsync(transaction.getId()).exceptionally(error -> false),
+                            this, deleted -> {
+                                if (deleted) {
+                                    Toast.makeText(this, "Transaksi berhasil dihapus", Toast.LENGTH_SHORT).show();
+                                    setResult(RESULT_OK);
+                                    finish();
+                                } else {
+                                    Toast.makeText(this, "Gagal menghapus transaksi", Toast.LENGTH_SHORT).show();
+                                }
+                            }))
                     .setNegativeButton("Tidak", null)
                     .show();
         });
     }
 
+    private void showAmount(TextView tvAmount) {
+        double amount = transaction.getAmount();
+        CurrencyCode target = CurrencyCode.fromCode(displayCurrency);
+        if (target != null) {
+            amount = currencyService.convertOn(amount, CurrencyCode.IDR, target, transaction.getEpochDay());
+        } else if (!displayCurrency.equals("IDR")) {
+            amount = currencyService.convertCurrency(amount, "IDR", displayCurrency);
+        }
+        tvAmount.setText(currencyFormat.format(amount));
+    }
+
     private void initializeCurrencySymbols() {
         currencySymbols = new java.util.HashMap<>();
         currencySymbols.put("IDR", "Rp");
@@ -1,55 +1,120 @@
 package com.example.moneymate.adapter;
 
 import android.content.Intent;
-import android.graphics.Color;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
-import androidx.core.content.res.ResourcesCompat;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.moneymate.R;
 import com.example.moneymate.activitiy.TransactionDetailActivity;
 import com.example.moneymate.models.Transaction;
+import com.example.moneymate.services.CurrencyCode;
 import com.example.moneymate.services.CurrencyService;
+import com.example.moneymate.utils.DateFormats;
 
+import java.text.DecimalFormat;
 import java.text.NumberFormat;
-import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows are diffed on a background thread whenever a new list is submitted, so
+ * only rows that were added, removed or changed are rebound. Submitted lists
+ * must not be modified afterwards; submit a copy instead.
+ *
+ * Before a list is handed to the differ, the texts and colors for each row are
+ * built on a background thread and cached by transaction id, so binding only
+ * assigns fields and rows that did not change reuse their model.
+ */
+public class TransactionAdapter extends ListAdapter<Transaction, TransactionAdapter.TransactionViewHolder> {
+    // Change payload for rows where only the amount text needs to be redrawn
+    private static final Object PAYLOAD_AMOUNT = new Object();
+
+    private static final DiffUtil.ItemCallback<Transaction> DIFF_CALLBACK = new DiffUtil.ItemCallback<Transaction>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+            return oldItem.getAmountMinor() == newItem.getAmountMinor()
+                    && oldItem.getEpochDay() == newItem.getEpochDay()
+                    && Objects.equals(oldItem.getType(), newItem.getType())
+                    && Objects.equals(oldItem.getCategory(), newItem.getCategory())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription());
+        }
+
+        @Nullable
+        @Override
+        public Object getChangePayload(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+            boolean onlyAmountChanged = oldItem.getEpochDay() == newItem.getEpochDay()
+                    && Objects.equals(oldItem.getType(), newItem.getType())
+                    && Objects.equals(oldItem.getCategory(), newItem.getCategory())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription());
+            return onlyAmountChanged ? PAYLOAD_AMOUNT : null;
+        }
+    };
+
+    private static final int INCOME_COLOR = 0xFF10A812;
+    // android.R.color.holo_red_dark
+    private static final int EXPENSE_COLOR = 0xFFCC0000;
+
+    // One thread shared by every adapter; it exits when there is nothing to format
+    private static final ThreadPoolExecutor ROW_MODEL_EXECUTOR = new ThreadPoolExecutor(1, 1,
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> new Thread(runnable, "row-models"));
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    static {
+        ROW_MODEL_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
 
-public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.TransactionViewHolder> {
-    private List<Transaction> transactions;
     private OnTransactionDeleteListener deleteListener;
-    private NumberFormat currencyFormat;
-    private SimpleDateFormat dateFormat;
     private String displayCurrency;
     private CurrencyService currencyService;
     private Map<String, String> currencySymbols;
 
+    // Replaced as a whole on the main thread, never modified after it is published
+    private Map<Integer, TransactionRowModel> rowModels = Collections.emptyMap();
+    // Bumped by every rebuild so a slower, older one cannot overwrite a newer one
+    private int rowModelGeneration;
+    private List<Transaction> latestList;
+    // Main thread only, for rows bound before their model is ready
+    private RowFormatter bindFormatter;
+
     public interface OnTransactionDeleteListener {
         void onDeleteTransaction(Transaction transaction);
     }
 
-    public TransactionAdapter(List<Transaction> transactions, OnTransactionDeleteListener deleteListener) {
-        this(transactions, deleteListener, "IDR", null);
+    public TransactionAdapter(OnTransactionDeleteListener deleteListener) {
+        this(deleteListener, "IDR", null);
     }
 
-    public TransactionAdapter(List<Transaction> transactions, OnTransactionDeleteListener deleteListener,
+    public TransactionAdapter(OnTransactionDeleteListener deleteListener,
                               String displayCurrency, CurrencyService currencyService) {
-        this.transactions = transactions;
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
         this.deleteListener = deleteListener;
         this.displayCurrency = displayCurrency;
         this.currencyService = currencyService;
-        this.dateFormat = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault());
 
         initializeCurrencySymbols();
-        updateCurrencyFormat();
     }
 
     private void initializeCurrencySymbols() {
@@ -71,30 +136,110 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
         currencySymbols.put("VND", "₫");
     }
 
-    private void updateCurrencyFormat() {
-        String symbol = currencySymbols.getOrDefault(displayCurrency, displayCurrency);
-
+    /**
+     * Formatting state for one rebuild. NumberFormat is not thread-safe, so each
+     * rebuild gets its own. Amounts convert at the rate of their own date.
+     */
+    private RowFormatter newRowFormatter() {
+        NumberFormat currencyFormat;
         if (displayCurrency.equals("IDR")) {
             currencyFormat = NumberFormat.getCurrencyInstance(new Locale("id", "ID"));
         } else {
-            currencyFormat = new NumberFormat() {
-                @Override
-                public StringBuffer format(double number, StringBuffer toAppendTo, java.text.FieldPosition pos) {
-                    java.text.DecimalFormat df = new java.text.DecimalFormat("#,##0.00");
-                    return toAppendTo.append(symbol).append(" ").append(df.format(number));
-                }
-
-                @Override
-                public StringBuffer format(long number, StringBuffer toAppendTo, java.text.FieldPosition pos) {
-                    return format((double) number, toAppendTo, pos);
-                }
-
-                @Override
-                public Number parse(String source, java.text.ParsePosition parsePosition) {
-                    return null;
-                }
-            };
+            String symbol = currencySymbols.getOrDefault(displayCurrency, displayCurrency);
+            DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
+            decimalFormat.setPositivePrefix(symbol + " ");
+            decimalFormat.setNegativePrefix(symbol + " -");
+            currencyFormat = decimalFormat;
+        }
+
+        CurrencyCode target = CurrencyCode.fromCode(displayCurrency);
+        if (currencyService == null || target == CurrencyCode.IDR) {
+            target = null;
+        }
+        return new RowFormatter(displayCurrency, currencyFormat, currencyService, target);
+    }
+
+    private static final class RowFormatter {
+        final String currency;
+        final NumberFormat currencyFormat;
+        final CurrencyService currencyService;
+        // null when amounts are shown in IDR as stored
+        final CurrencyCode target;
+
+        // Rows come newest first, so neighbours usually share a date and its rate
+        private long rateDay = Long.MIN_VALUE;
+        private double rate = 1;
+
+        RowFormatter(String currency, NumberFormat currencyFormat,
+                     CurrencyService currencyService, CurrencyCode target) {
+            this.currency = currency;
+            this.currencyFormat = currencyFormat;
+            this.currencyService = currencyService;
+            this.target = target;
+        }
+
+        private double rateOn(long epochDay) {
+            if (target == null) return 1;
+            if (epochDay != rateDay) {
+                rate = currencyService.convertOn(1, CurrencyCode.IDR, target, epochDay);
+                rateDay = epochDay;
+            }
+            return rate;
+        }
+
+        TransactionRowModel build(Transaction transaction) {
+            boolean income = "income".equals(transaction.getType());
+            return new TransactionRowModel(transaction, currency,
+                    currencyFormat.format(transaction.getAmount() * rateOn(transaction.getEpochDay())),
+                    DateFormats.day().format(transaction.getLocalDate()),
+                    income ? INCOME_COLOR : EXPENSE_COLOR,
+                    income ? R.drawable.ic_income : R.drawable.ic_expense);
+        }
+    }
+
+    // Reuse every cached model that still matches, build the rest
+    private static Map<Integer, TransactionRowModel> buildRowModels(List<Transaction> list,
+                                                                     Map<Integer, TransactionRowModel> cached,
+                                                                     RowFormatter formatter) {
+        Map<Integer, TransactionRowModel> models = new HashMap<>(list.size() * 2);
+        for (Transaction transaction : list) {
+            TransactionRowModel model = cached.get(transaction.getId());
+            if (model == null || !model.matches(transaction, formatter.currency)) {
+                model = formatter.build(transaction);
+            }
+            models.put(transaction.getId(), model);
+        }
+        return models;
+    }
+
+    private void rebuildRowModels(List<Transaction> list, boolean reuseCached, Runnable onReady) {
+        int generation = ++rowModelGeneration;
+        Map<Integer, TransactionRowModel> cached = reuseCached ? rowModels : Collections.emptyMap();
+        RowFormatter formatter = newRowFormatter();
+        ROW_MODEL_EXECUTOR.execute(() -> {
+            Map<Integer, TransactionRowModel> models = buildRowModels(list, cached, formatter);
+            MAIN_HANDLER.post(() -> {
+                if (generation != rowModelGeneration) return;
+                rowModels = models;
+                onReady.run();
+            });
+        });
+    }
+
+    @Override
+    public void submitList(@Nullable List<Transaction> list) {
+        submitList(list, null);
+    }
+
+    @Override
+    public void submitList(@Nullable List<Transaction> list, @Nullable Runnable commitCallback) {
+        latestList = list;
+        if (list == null || list.isEmpty()) {
+            rowModelGeneration++;
+            super.submitList(list, commitCallback);
+            return;
         }
+        rebuildRowModels(list, true, () -> super.submitList(list, commitCallback));
     }
 
     @NonNull
@@ -102,62 +247,88 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
     public TransactionViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_transaction, parent, false);
-        return new TransactionViewHolder(view);
-    }
+        TransactionViewHolder holder = new TransactionViewHolder(view);
 
-    @Override
-    public void onBindViewHolder(@NonNull TransactionViewHolder holder, int position) {
-        Transaction transaction = transactions.get(position);
+        // Listeners are created once per holder and look up the row when they fire
+        view.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) return;
+            Intent intent = new Intent(v.getContext(), TransactionDetailActivity.class);
+            intent.putExtra("transaction", getItem(position));
+            v.getContext().startActivity(intent);
+        });
 
-        holder.tvDescription.setText(transaction.getDescription());
-        holder.tvCategory.setText(transaction.getCategory());
-        holder.tvDate.setText(dateFormat.format(transaction.getDate()));
+        view.setOnLongClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION && deleteListener != null) {
+                deleteListener.onDeleteTransaction(getItem(position));
+            }
+            return true;
+        });
+        return holder;
+    }
 
-        // Convert and display amount in selected currency
-        double amount = transaction.getAmount();
-        if (currencyService != null && !displayCurrency.equals("IDR")) {
-            amount = currencyService.convertCurrency(amount, "IDR", displayCurrency);
+    @Override
+    public void onBindViewHolder(@NonNull TransactionViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        if (payloads.isEmpty() || !onlyAmountPayloads(payloads)) {
+            onBindViewHolder(holder, position);
+            return;
         }
+        holder.tvAmount.setText(getRowModel(getItem(position)).amountText);
+    }
 
-        holder.tvAmount.setText(currencyFormat.format(amount));
+    private static boolean onlyAmountPayloads(List<Object> payloads) {
+        for (Object payload : payloads) {
+            if (payload != PAYLOAD_AMOUNT) return false;
+        }
+        return true;
+    }
 
-        // Set icon and color based on transaction type
-        if (transaction.getType().equals("income")) {
-            holder.ivIcon.setImageResource(R.drawable.ic_income);
-            holder.tvAmount.setTextColor(Color.parseColor("#10A812"));
-        } else {
-            holder.ivIcon.setImageResource(R.drawable.ic_expense);
-            holder.tvAmount.setTextColor(ResourcesCompat.getColor(
-                    holder.itemView.getContext().getResources(),
-                    android.R.color.holo_red_dark, null));
+    private TransactionRowModel getRowModel(Transaction transaction) {
+        TransactionRowModel model = rowModels.get(transaction.getId());
+        if (model == null || !model.matches(transaction, displayCurrency)) {
+            // Only while a rebuild is still running; the next bind uses the cache
+            if (bindFormatter == null) {
+                bindFormatter = newRowFormatter();
+            }
+            model = bindFormatter.build(transaction);
         }
+        return model;
+    }
 
-        // Click to view details
-        holder.itemView.setOnClickListener(v -> {
-            Intent intent = new Intent(holder.itemView.getContext(), TransactionDetailActivity.class);
-            intent.putExtra("transaction", transaction);
-            holder.itemView.getContext().startActivity(intent);
-        });
+    @Override
+    public void onBindViewHolder(@NonNull TransactionViewHolder holder, int position) {
+        Transaction transaction = getItem(position);
+        TransactionRowModel model = getRowModel(transaction);
 
-        // Long click to delete
-        holder.itemView.setOnLongClickListener(v -> {
-            if (deleteListener != null) {
-                deleteListener.onDeleteTransaction(transaction);
-            }
-            return true;
-        });
+        holder.tvDescription.setText(transaction.getDescription());
+        holder.tvCategory.setText(transaction.getCategory());
+        holder.tvDate.setText(model.dateText);
+        holder.tvAmount.setText(model.amountText);
+        holder.tvAmount.setTextColor(model.amountColor);
+        holder.ivIcon.setImageResource(model.iconRes);
     }
 
     @Override
-    public int getItemCount() {
-        return transactions.size();
+    public long getItemId(int position) {
+        return getItem(position).getId();
     }
 
     public void updateCurrency(String newCurrency, CurrencyService newCurrencyService) {
         this.displayCurrency = newCurrency;
         this.currencyService = newCurrencyService;
-        updateCurrencyFormat();
-        notifyDataSetChanged();
+        bindFormatter = null;
+
+        // A pending submit is superseded here, and its commit callback dropped,
+        // the same as when ListAdapter gets a newer list
+        List<Transaction> list = latestList != null ? latestList : getCurrentList();
+        if (list.isEmpty()) return;
+
+        // Rates may have changed too, so every row is rebuilt in one background pass.
+        // Only the amount text differs between currencies, so that is all that is redrawn.
+        rebuildRowModels(list, false, () -> super.submitList(list,
+                () -> notifyItemRangeChanged(0, getItemCount(), PAYLOAD_AMOUNT)));
     }
 
     static class TransactionViewHolder extends RecyclerView.ViewHolder {
@@ -173,4 +344,4 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
             tvAmount = itemView.findViewById(R.id.tv_amount);
         }
     }
-}
\ No newline at end of file
+}
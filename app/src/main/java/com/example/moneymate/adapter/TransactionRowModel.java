@@ -0,0 +1,39 @@
+package com.example.moneymate.adapter;
+
+import com.example.moneymate.models.Transaction;
+
+/**
+ * Everything a transaction row shows, already formatted. Built off the main
+ * thread so binding a row only assigns fields.
+ */
+final class TransactionRowModel {
+    final String amountText;
+    final String dateText;
+    final int amountColor;
+    final int iconRes;
+
+    // What the texts were built from, to tell when the model is stale
+    private final long amountMinor;
+    private final long epochDay;
+    private final String type;
+    private final String currency;
+
+    TransactionRowModel(Transaction transaction, String currency, String amountText, String dateText,
+                        int amountColor, int iconRes) {
+        this.amountText = amountText;
+        this.dateText = dateText;
+        this.amountColor = amountColor;
+        this.iconRes = iconRes;
+        this.amountMinor = transaction.getAmountMinor();
+        this.epochDay = transaction.getEpochDay();
+        this.type = transaction.getType();
+        this.currency = currency;
+    }
+
+    boolean matches(Transaction transaction, String displayCurrency) {
+        return amountMinor == transaction.getAmountMinor()
+                && epochDay == transaction.getEpochDay()
+                && currency.equals(displayCurrency)
+                && type.equals(transaction.getType());
+    }
+}
@@ -5,45 +5,105 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
-import android.os.Handler;
-import android.os.Looper;
+import android.database.sqlite.SQLiteStatement;
 
 import com.example.moneymate.models.Transaction;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.YearMonth;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "MoneyMate.db";
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 7;
 
     // Table name
     private static final String TABLE_TRANSACTIONS = "transactions";
+    // Per month/type/category sums of transactions, maintained by triggers
+    private static final String TABLE_MONTHLY_TOTALS = "monthly_totals";
+    // FTS4 index over description and category, content read from transactions
+    private static final String TABLE_TRANSACTIONS_FTS = "transactions_fts";
+    // Daily exchange rates relative to EUR, and the date spans already fetched into it
+    private static final String TABLE_EXCHANGE_RATES = "exchange_rates";
+    private static final String TABLE_EXCHANGE_RATE_SPANS = "exchange_rate_spans";
 
     // Column names
-    private static final String COLUMN_ID = "id";
-    private static final String COLUMN_AMOUNT = "amount";
-    private static final String COLUMN_DESCRIPTION = "description";
-    private static final String COLUMN_TYPE = "type";
-    private static final String COLUMN_CATEGORY = "category";
-    private static final String COLUMN_DATE = "date";
-
-    private final Executor dbExecutor = Executors.newFixedThreadPool(4);
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+    static final String COLUMN_ID = "id";
+    static final String COLUMN_AMOUNT = "amount";
+    static final String COLUMN_DESCRIPTION = "description";
+    static final String COLUMN_TYPE = "type";
+    static final String COLUMN_CATEGORY = "category";
+    static final String COLUMN_DATE = "date";
+    // Computed column used by TransactionRowMapper.PROJECTION_AMOUNT_TYPE
+    static final String COLUMN_IS_INCOME = "is_income";
+
+    // monthly_totals columns (type and category reuse the transactions names)
+    private static final String COLUMN_YEAR_MONTH = "year_month"; // yyyyMM, e.g. 202410
+    private static final String COLUMN_TOTAL = "total";
+    private static final String COLUMN_ROW_COUNT = "row_count";
+
+    // exchange_rates and exchange_rate_spans columns (dates as epoch days)
+    private static final String COLUMN_CURRENCY = "currency";
+    private static final String COLUMN_RATE = "rate";
+    private static final String COLUMN_START_DAY = "start_day";
+    private static final String COLUMN_END_DAY = "end_day";
+
+    private static final String ORDER_NEWEST_FIRST = COLUMN_DATE + " DESC, " + COLUMN_ID + " DESC";
+    private static final String SELECTION_DATE_RANGE = COLUMN_DATE + " BETWEEN ? AND ?";
+
+    // Index names
+    private static final String INDEX_DATE_ID = "idx_transactions_date_id";
+    private static final String INDEX_DATE = "idx_transactions_date";
+    private static final String INDEX_TYPE_DATE_CATEGORY = "idx_transactions_type_date_category";
+
+    // Bulk inserts report progress after every this many rows
+    private static final int BULK_PROGRESS_INTERVAL = 500;
+
+    // Rows per page of the home feed
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    // Shorter search words would scan every indexed word that starts with them
+    public static final int MIN_SEARCH_LENGTH = 2;
+
+    private static volatile DatabaseHelper instance;
+
+    private final DatabaseScheduler scheduler = DatabaseScheduler.getInstance();
+
+    // monthly_totals and transactions_fts are derived from transactions by triggers,
+    // so the transactions version covers them as well
+    private final InvalidationTracker invalidationTracker = new InvalidationTracker();
+    private final Map<String, ObservableQuery<?>> observableQueries = new ConcurrentHashMap<>();
+
+    /**
+     * Single app-scoped helper. The connection is opened once and kept open for
+     * the lifetime of the process, so callers must not close it.
+     */
+    public static DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DatabaseHelper.class) {
+                if (instance == null) {
+                    instance = new DatabaseHelper(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
 
-    public DatabaseHelper(Context context) {
+    private DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // WAL lets readers run alongside the writer instead of blocking on it
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
+        // Always start from the version 1 schema and replay every migration,
+        // so fresh installs and upgraded installs end up with the same schema
         String CREATE_TRANSACTIONS_TABLE = "CREATE TABLE " + TABLE_TRANSACTIONS + "("
                 + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + COLUMN_AMOUNT + " REAL NOT NULL,"
@@ -53,140 +113,489 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + COLUMN_DATE + " TEXT NOT NULL"
                 + ")";
         db.execSQL(CREATE_TRANSACTIONS_TABLE);
+        onUpgrade(db, 1, DATABASE_VERSION);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_TRANSACTIONS);
-        onCreate(db);
+        // Upgrade in place one version at a time so existing transactions are kept
+        for (int version = oldVersion + 1; version <= newVersion; version++) {
+            migrate(db, version);
+        }
+    }
+
+    private void migrate(SQLiteDatabase db, int toVersion) {
+        switch (toVersion) {
+            case 2:
+                migrateToVersion2(db);
+                break;
+            case 3:
+                migrateToVersion3(db);
+                break;
+            case 4:
+                migrateToVersion4(db);
+                break;
+            case 5:
+                migrateToVersion5(db);
+                break;
+            case 6:
+                migrateToVersion6(db);
+                break;
+            case 7:
+                migrateToVersion7(db);
+                break;
+            default:
+                throw new IllegalStateException("No migration defined for database version " + toVersion);
+        }
+    }
+
+    // Version 2: secondary indexes matching the list, month and category queries
+    private void migrateToVersion2(SQLiteDatabase db) {
+        createTransactionIndexes(db);
+    }
+
+    // Version 3: amount as INTEGER minor units (sen), date as INTEGER epoch day
+    private void migrateToVersion3(SQLiteDatabase db) {
+        // SQLite cannot change a column type, so rebuild the table and copy the rows over
+        String tempTable = TABLE_TRANSACTIONS + "_v3";
+        db.execSQL("CREATE TABLE " + tempTable + "("
+                + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COLUMN_AMOUNT + " INTEGER NOT NULL,"
+                + COLUMN_DESCRIPTION + " TEXT,"
+                + COLUMN_TYPE + " TEXT NOT NULL CHECK (" + COLUMN_TYPE + " IN ('income', 'expense')),"
+                + COLUMN_CATEGORY + " TEXT NOT NULL,"
+                + COLUMN_DATE + " INTEGER NOT NULL"
+                + ")");
+
+        // julianday() - 2440587.5 turns 'yyyy-MM-dd' into days since 1970-01-01;
+        // unparseable dates fall back to today, same as the old reader did
+        db.execSQL("INSERT INTO " + tempTable + " ("
+                + COLUMN_ID + ", " + COLUMN_AMOUNT + ", " + COLUMN_DESCRIPTION + ", "
+                + COLUMN_TYPE + ", " + COLUMN_CATEGORY + ", " + COLUMN_DATE + ") "
+                + "SELECT " + COLUMN_ID + ", "
+                + "CAST(ROUND(" + COLUMN_AMOUNT + " * " + Transaction.MINOR_UNITS_PER_MAJOR + ") AS INTEGER), "
+                + COLUMN_DESCRIPTION + ", " + COLUMN_TYPE + ", " + COLUMN_CATEGORY + ", "
+                + "COALESCE(CAST(julianday(" + COLUMN_DATE + ") - 2440587.5 AS INTEGER), "
+                + "CAST(julianday('now', 'localtime') - 2440587.5 AS INTEGER)) "
+                + "FROM " + TABLE_TRANSACTIONS);
+
+        db.execSQL("DROP TABLE " + TABLE_TRANSACTIONS);
+        db.execSQL("ALTER TABLE " + tempTable + " RENAME TO " + TABLE_TRANSACTIONS);
+        createTransactionIndexes(db);
+    }
+
+    // Version 4: monthly_totals aggregate table kept current by triggers
+    private void migrateToVersion4(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_MONTHLY_TOTALS + "("
+                + COLUMN_YEAR_MONTH + " INTEGER NOT NULL,"
+                + COLUMN_TYPE + " TEXT NOT NULL,"
+                + COLUMN_CATEGORY + " TEXT NOT NULL,"
+                + COLUMN_TOTAL + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_ROW_COUNT + " INTEGER NOT NULL DEFAULT 0,"
+                + "PRIMARY KEY (" + COLUMN_YEAR_MONTH + ", " + COLUMN_TYPE + ", " + COLUMN_CATEGORY + ")"
+                + ") WITHOUT ROWID");
+
+        db.execSQL("INSERT INTO " + TABLE_MONTHLY_TOTALS + " SELECT "
+                + yearMonthOf(COLUMN_DATE) + ", " + COLUMN_TYPE + ", " + COLUMN_CATEGORY + ", "
+                + "SUM(" + COLUMN_AMOUNT + "), COUNT(*) FROM " + TABLE_TRANSACTIONS
+                + " GROUP BY 1, 2, 3");
+
+        db.execSQL("CREATE TRIGGER trg_monthly_totals_insert AFTER INSERT ON " + TABLE_TRANSACTIONS
+                + " BEGIN " + addToMonthlyTotals("NEW") + " END");
+        db.execSQL("CREATE TRIGGER trg_monthly_totals_delete AFTER DELETE ON " + TABLE_TRANSACTIONS
+                + " BEGIN " + removeFromMonthlyTotals("OLD") + " END");
+        db.execSQL("CREATE TRIGGER trg_monthly_totals_update AFTER UPDATE OF "
+                + COLUMN_AMOUNT + ", " + COLUMN_TYPE + ", " + COLUMN_CATEGORY + ", " + COLUMN_DATE
+                + " ON " + TABLE_TRANSACTIONS
+                + " BEGIN " + removeFromMonthlyTotals("OLD") + " " + addToMonthlyTotals("NEW") + " END");
+
+        // Category spending now reads monthly_totals, so this index only slows down writes
+        db.execSQL("DROP INDEX IF EXISTS " + INDEX_TYPE_DATE_CATEGORY);
+    }
+
+    // Version 5: full-text search index over description and category
+    private void migrateToVersion5(SQLiteDatabase db) {
+        // External content table: only the index is stored, text is read from transactions
+        db.execSQL("CREATE VIRTUAL TABLE " + TABLE_TRANSACTIONS_FTS + " USING fts4("
+                + "content=\"" + TABLE_TRANSACTIONS + "\", "
+                + COLUMN_DESCRIPTION + ", " + COLUMN_CATEGORY + ")");
+        db.execSQL("INSERT INTO " + TABLE_TRANSACTIONS_FTS + "(" + TABLE_TRANSACTIONS_FTS + ") VALUES ('rebuild')");
+
+        // Old text must leave the index before the row changes, new text enters after
+        String removeOld = "DELETE FROM " + TABLE_TRANSACTIONS_FTS + " WHERE docid = OLD." + COLUMN_ID + ";";
+        String insertNew = "INSERT INTO " + TABLE_TRANSACTIONS_FTS + "(docid, "
+                + COLUMN_DESCRIPTION + ", " + COLUMN_CATEGORY + ") VALUES (NEW." + COLUMN_ID + ", NEW."
+                + COLUMN_DESCRIPTION + ", NEW." + COLUMN_CATEGORY + ");";
+        db.execSQL("CREATE TRIGGER trg_transactions_fts_before_update BEFORE UPDATE ON " + TABLE_TRANSACTIONS
+                + " BEGIN " + removeOld + " END");
+        db.execSQL("CREATE TRIGGER trg_transactions_fts_before_delete BEFORE DELETE ON " + TABLE_TRANSACTIONS
+                + " BEGIN " + removeOld + " END");
+        db.execSQL("CREATE TRIGGER trg_transactions_fts_after_update AFTER UPDATE ON " + TABLE_TRANSACTIONS
+                + " BEGIN " + insertNew + " END");
+        db.execSQL("CREATE TRIGGER trg_transactions_fts_after_insert AFTER INSERT ON " + TABLE_TRANSACTIONS
+                + " BEGIN " + insertNew + " END");
+    }
+
+    // Version 6: historical exchange rates, so old transactions convert at their own date's rate
+    private void migrateToVersion6(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_EXCHANGE_RATES + "("
+                + COLUMN_DATE + " INTEGER NOT NULL,"
+                + COLUMN_CURRENCY + " TEXT NOT NULL,"
+                + COLUMN_RATE + " REAL NOT NULL,"
+                + "PRIMARY KEY (" + COLUMN_DATE + ", " + COLUMN_CURRENCY + ")"
+                + ") WITHOUT ROWID");
+        // Weekends and holidays have no rates, so the fetched spans are kept separately
+        // to tell a day without rates from a day that was never fetched
+        db.execSQL("CREATE TABLE " + TABLE_EXCHANGE_RATE_SPANS + "("
+                + COLUMN_START_DAY + " INTEGER NOT NULL,"
+                + COLUMN_END_DAY + " INTEGER NOT NULL"
+                + ")");
+    }
+
+    // Version 7: prefix indexes, so a search for the first letters of a word is an index lookup
+    private void migrateToVersion7(SQLiteDatabase db) {
+        // FTS options cannot be altered; the triggers keep working once the table is back
+        db.execSQL("DROP TABLE " + TABLE_TRANSACTIONS_FTS);
+        db.execSQL("CREATE VIRTUAL TABLE " + TABLE_TRANSACTIONS_FTS + " USING fts4("
+                + "content=\"" + TABLE_TRANSACTIONS + "\", prefix=\"2,3\", "
+                + COLUMN_DESCRIPTION + ", " + COLUMN_CATEGORY + ")");
+        db.execSQL("INSERT INTO " + TABLE_TRANSACTIONS_FTS + "(" + TABLE_TRANSACTIONS_FTS + ") VALUES ('rebuild')");
+    }
+
+    // yyyyMM of an epoch day column or expression
+    private static String yearMonthOf(String epochDay) {
+        return "CAST(strftime('%Y%m', " + epochDay + " * 86400, 'unixepoch') AS INTEGER)";
+    }
+
+    private static String monthlyTotalsKeyOf(String row) {
+        return COLUMN_YEAR_MONTH + " = " + yearMonthOf(row + "." + COLUMN_DATE)
+                + " AND " + COLUMN_TYPE + " = " + row + "." + COLUMN_TYPE
+                + " AND " + COLUMN_CATEGORY + " = " + row + "." + COLUMN_CATEGORY;
+    }
+
+    // Trigger body that adds a row to its bucket (no UPSERT before SQLite 3.24)
+    private static String addToMonthlyTotals(String row) {
+        return "INSERT OR IGNORE INTO " + TABLE_MONTHLY_TOTALS + " ("
+                + COLUMN_YEAR_MONTH + ", " + COLUMN_TYPE + ", " + COLUMN_CATEGORY + ") VALUES ("
+                + yearMonthOf(row + "." + COLUMN_DATE) + ", " + row + "." + COLUMN_TYPE + ", "
+                + row + "." + COLUMN_CATEGORY + "); "
+                + "UPDATE " + TABLE_MONTHLY_TOTALS + " SET "
+                + COLUMN_TOTAL + " = " + COLUMN_TOTAL + " + " + row + "." + COLUMN_AMOUNT + ", "
+                + COLUMN_ROW_COUNT + " = " + COLUMN_ROW_COUNT + " + 1"
+                + " WHERE " + monthlyTotalsKeyOf(row) + ";";
+    }
+
+    // Trigger body that takes a row out of its bucket and drops the bucket once empty
+    private static String removeFromMonthlyTotals(String row) {
+        return "UPDATE " + TABLE_MONTHLY_TOTALS + " SET "
+                + COLUMN_TOTAL + " = " + COLUMN_TOTAL + " - " + row + "." + COLUMN_AMOUNT + ", "
+                + COLUMN_ROW_COUNT + " = " + COLUMN_ROW_COUNT + " - 1"
+                + " WHERE " + monthlyTotalsKeyOf(row) + "; "
+                + "DELETE FROM " + TABLE_MONTHLY_TOTALS
+                + " WHERE " + monthlyTotalsKeyOf(row) + " AND " + COLUMN_ROW_COUNT + " <= 0;";
+    }
+
+    private void createTransactionIndexes(SQLiteDatabase db) {
+        // getAllTransactions: ORDER BY date DESC, id DESC
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_DATE_ID + " ON " + TABLE_TRANSACTIONS
+                + "(" + COLUMN_DATE + " DESC, " + COLUMN_ID + " DESC)");
+        // getTransactionsForMonth: WHERE date BETWEEN ? AND ?
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_DATE + " ON " + TABLE_TRANSACTIONS
+                + "(" + COLUMN_DATE + ")");
+        // getCategorySpending: covering index (dropped again in version 4 for monthly_totals)
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_TYPE_DATE_CATEGORY + " ON " + TABLE_TRANSACTIONS
+                + "(" + COLUMN_TYPE + ", " + COLUMN_DATE + ", " + COLUMN_CATEGORY + ", " + COLUMN_AMOUNT + ")");
     }
 
     public interface DatabaseCallback<T> {
         void onComplete(T result);
     }
 
+    public interface ProgressListener {
+        void onProgress(int inserted);
+    }
+
+    public interface ExchangeRateVisitor {
+        void visit(long epochDay, String currency, double rate);
+    }
+
+    /**
+     * A query over the transactions table that re-runs in the background only
+     * after a write changed the table. Handles are shared by key for the life of
+     * the process, so the loader must not capture a screen. See {@link ObservableQuery}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ObservableQuery<T> observeTransactions(String key, ObservableQuery.Loader<T> loader) {
+        return (ObservableQuery<T>) observableQueries.computeIfAbsent(key,
+                k -> new ObservableQuery<>(invalidationTracker, TABLE_TRANSACTIONS, loader, scheduler));
+    }
+
     // Add transaction with async support
     public long addTransaction(Transaction transaction) {
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
 
-        values.put(COLUMN_AMOUNT, transaction.getAmount());
+        values.put(COLUMN_AMOUNT, transaction.getAmountMinor());
         values.put(COLUMN_DESCRIPTION, transaction.getDescription());
         values.put(COLUMN_TYPE, transaction.getType());
         values.put(COLUMN_CATEGORY, transaction.getCategory());
-        values.put(COLUMN_DATE, dateFormat.format(transaction.getDate()));
+        values.put(COLUMN_DATE, transaction.getEpochDay());
 
         long id = db.insert(TABLE_TRANSACTIONS, null, values);
-        db.close();
+        if (id != -1) {
+            invalidationTracker.notifyChanged(TABLE_TRANSACTIONS);
+        }
         return id;
     }
 
+    public CompletableFuture<Long> addTransactionAsync(Transaction transaction) {
+        return scheduler.write(() -> addTransaction(transaction));
+    }
+
     public void addTransactionAsync(Transaction transaction, DatabaseCallback<Long> callback) {
-        dbExecutor.execute(() -> {
-            long id = addTransaction(transaction);
-            new Handler(Looper.getMainLooper()).post(() -> callback.onComplete(id));
-        });
+        scheduler.deliver(addTransactionAsync(transaction), callback);
+    }
+
+    /**
+     * Insert many transactions as one SQLite transaction with a single compiled
+     * statement. Either every row is stored or, if one fails, none are.
+     * Returns the number of rows inserted.
+     */
+    public int addTransactions(Iterable<Transaction> transactions, ProgressListener listener) {
+        return addTransactions(transactions.iterator(), listener);
+    }
+
+    public int addTransactions(Iterator<Transaction> transactions, ProgressListener listener) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        String insertSql = "INSERT INTO " + TABLE_TRANSACTIONS + " ("
+                + COLUMN_AMOUNT + ", " + COLUMN_DESCRIPTION + ", " + COLUMN_TYPE + ", "
+                + COLUMN_CATEGORY + ", " + COLUMN_DATE + ") VALUES (?, ?, ?, ?, ?)";
+
+        int inserted = 0;
+        db.beginTransaction();
+        try (SQLiteStatement statement = db.compileStatement(insertSql)) {
+            while (transactions.hasNext()) {
+                Transaction transaction = transactions.next();
+                statement.clearBindings();
+                statement.bindLong(1, transaction.getAmountMinor());
+                if (transaction.getDescription() != null) {
+                    statement.bindString(2, transaction.getDescription());
+                }
+                statement.bindString(3, transaction.getType());
+                statement.bindString(4, transaction.getCategory());
+                statement.bindLong(5, transaction.getEpochDay());
+                statement.executeInsert();
+
+                inserted++;
+                if (listener != null && inserted % BULK_PROGRESS_INTERVAL == 0) {
+                    listener.onProgress(inserted);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        if (inserted > 0) {
+            invalidationTracker.notifyChanged(TABLE_TRANSACTIONS);
+        }
+        if (listener != null && inserted % BULK_PROGRESS_INTERVAL != 0) {
+            listener.onProgress(inserted);
+        }
+        return inserted;
+    }
+
+    // Progress and completion are delivered on the main thread
+    public CompletableFuture<Integer> addTransactionsAsync(Iterable<Transaction> transactions,
+                                                           ProgressListener listener) {
+        ProgressListener mainThreadListener = listener == null ? null
+                : inserted -> scheduler.postToMain(() -> listener.onProgress(inserted));
+        return scheduler.write(() -> addTransactions(transactions, mainThreadListener));
+    }
+
+    public void addTransactionsAsync(Iterable<Transaction> transactions, ProgressListener listener,
+                                     DatabaseCallback<Integer> callback) {
+        scheduler.deliver(addTransactionsAsync(transactions, listener), callback);
     }
 
     // Get all transactions with async support
     public List<Transaction> getAllTransactions() {
-        List<Transaction> transactions = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + TABLE_TRANSACTIONS
-                + " ORDER BY " + COLUMN_DATE + " DESC, " + COLUMN_ID + " DESC";
+        try (Cursor cursor = queryTransactions(TransactionRowMapper.PROJECTION_FULL, null, null)) {
+            return new TransactionRowMapper(cursor).mapAll();
+        }
+    }
 
-        try (SQLiteDatabase db = this.getReadableDatabase();
-             Cursor cursor = db.rawQuery(selectQuery, null)) {
+    // Full reads are for exports and charts, so they wait behind on-screen queries
+    public CompletableFuture<List<Transaction>> getAllTransactionsAsync() {
+        return scheduler.read(DatabaseScheduler.Priority.BACKGROUND, this::getAllTransactions);
+    }
 
-            if (cursor.moveToFirst()) {
-                do {
-                    Transaction transaction = new Transaction();
-                    transaction.setId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID)));
-                    transaction.setAmount(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_AMOUNT)));
-                    transaction.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION)));
-                    transaction.setType(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TYPE)));
-                    transaction.setCategory(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CATEGORY)));
-
-                    try {
-                        transaction.setDate(dateFormat.parse(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DATE))));
-                    } catch (ParseException e) {
-                        transaction.setDate(new Date());
-                    }
-
-                    transactions.add(transaction);
-                } while (cursor.moveToNext());
-            }
+    public void getAllTransactionsAsync(DatabaseCallback<List<Transaction>> callback) {
+        scheduler.deliver(getAllTransactionsAsync(), callback);
+    }
+
+    /**
+     * One page of the newest-first feed. Pass null to get the first page, or the last
+     * transaction of the previous page to continue after it. Pages are found by
+     * (date, id) keyset on the date/id index, so every page costs the same no matter
+     * how deep the user has scrolled.
+     */
+    public List<Transaction> getTransactionsPage(Transaction after, int pageSize) {
+        String selection = null;
+        String[] selectionArgs = null;
+        if (after != null) {
+            // (date, id) < (afterDate, afterId), written so the date range can use the index
+            selection = COLUMN_DATE + " <= ? AND (" + COLUMN_DATE + " < ? OR " + COLUMN_ID + " < ?)";
+            String afterDate = String.valueOf(after.getEpochDay());
+            selectionArgs = new String[]{afterDate, afterDate, String.valueOf(after.getId())};
+        }
+
+        try (Cursor cursor = queryTransactions(TransactionRowMapper.PROJECTION_FULL,
+                selection, selectionArgs, String.valueOf(pageSize))) {
+            return new TransactionRowMapper(cursor).mapAll();
         }
-        return transactions;
     }
 
-    public void getAllTransactionsAsync(DatabaseCallback<List<Transaction>> callback) {
-        dbExecutor.execute(() -> {
-            List<Transaction> transactions = getAllTransactions();
-            new Handler(Looper.getMainLooper()).post(() -> callback.onComplete(transactions));
-        });
+    public CompletableFuture<List<Transaction>> getTransactionsPageAsync(Transaction after, int pageSize) {
+        return scheduler.read(DatabaseScheduler.Priority.UI, () -> getTransactionsPage(after, pageSize));
     }
 
-    // Get transactions for specific month
-    public List<Transaction> getTransactionsForMonth(int year, int month) {
-        List<Transaction> transactions = new ArrayList<>();
-        Calendar cal = Calendar.getInstance();
-        cal.set(year, month, 1);
-        String startDate = dateFormat.format(cal.getTime());
+    /**
+     * The newest-first feed from the top down to and including through, in one query.
+     * Used to re-read every page already loaded after the table changed, so edits,
+     * deletes and back-dated inserts anywhere in that range show up.
+     */
+    public List<Transaction> getTransactionsThrough(Transaction through) {
+        // (date, id) >= (throughDate, throughId), written so the date range can use the index
+        String selection = COLUMN_DATE + " >= ? AND (" + COLUMN_DATE + " > ? OR " + COLUMN_ID + " >= ?)";
+        String throughDate = String.valueOf(through.getEpochDay());
+        String[] selectionArgs = {throughDate, throughDate, String.valueOf(through.getId())};
+
+        try (Cursor cursor = queryTransactions(TransactionRowMapper.PROJECTION_FULL, selection, selectionArgs)) {
+            return new TransactionRowMapper(cursor).mapAll();
+        }
+    }
 
-        cal.set(Calendar.DAY_OF_MONTH, cal.getActualMaximum(Calendar.DAY_OF_MONTH));
-        String endDate = dateFormat.format(cal.getTime());
+    public CompletableFuture<List<Transaction>> getTransactionsThroughAsync(Transaction through) {
+        return scheduler.read(DatabaseScheduler.Priority.UI, () -> getTransactionsThrough(through));
+    }
 
-        String selectQuery = "SELECT * FROM " + TABLE_TRANSACTIONS +
-                " WHERE " + COLUMN_DATE + " BETWEEN ? AND ? ORDER BY " + COLUMN_DATE + " DESC";
+    /**
+     * Prefix search over description and category. Every word typed must match the
+     * start of a word in the transaction; words shorter than {@link #MIN_SEARCH_LENGTH}
+     * are ignored. Rows matching in the description rank above rows that only match
+     * by category, newest first within each group.
+     */
+    public List<Transaction> searchTransactions(String query, int offset, int limit) {
+        // Lower case so words like "or" are never read as FTS operators
+        String[] terms = query.trim().toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+        StringBuilder anyColumn = new StringBuilder();
+        StringBuilder inDescription = new StringBuilder();
+        for (String term : terms) {
+            if (term.length() < MIN_SEARCH_LENGTH) continue;
+            anyColumn.append(term).append("* ");
+            inDescription.append(COLUMN_DESCRIPTION).append(':').append(term).append("* ");
+        }
+        if (anyColumn.length() == 0) {
+            return new ArrayList<>();
+        }
 
-        try (SQLiteDatabase db = this.getReadableDatabase();
-             Cursor cursor = db.rawQuery(selectQuery, new String[]{startDate, endDate})) {
+        String searchQuery = "SELECT t." + COLUMN_ID + ", t." + COLUMN_AMOUNT + ", t." + COLUMN_DESCRIPTION
+                + ", t." + COLUMN_TYPE + ", t." + COLUMN_CATEGORY + ", t." + COLUMN_DATE
+                + " FROM " + TABLE_TRANSACTIONS_FTS
+                + " JOIN " + TABLE_TRANSACTIONS + " t ON t." + COLUMN_ID + " = " + TABLE_TRANSACTIONS_FTS + ".docid"
+                // SQLite never flattens a virtual table subquery on the right of a LEFT JOIN,
+                // so the description matches are looked up once, not once per row
+                + " LEFT JOIN (SELECT docid FROM " + TABLE_TRANSACTIONS_FTS
+                + " WHERE " + TABLE_TRANSACTIONS_FTS + " MATCH ?) d ON d.docid = t." + COLUMN_ID
+                + " WHERE " + TABLE_TRANSACTIONS_FTS + " MATCH ?"
+                + " ORDER BY d.docid IS NULL, t." + COLUMN_DATE + " DESC, t." + COLUMN_ID + " DESC"
+                + " LIMIT " + limit + " OFFSET " + offset;
+
+        try (Cursor cursor = getReadableDatabase().rawQuery(searchQuery,
+                new String[]{inDescription.toString().trim(), anyColumn.toString().trim()})) {
+            return new TransactionRowMapper(cursor).mapAll();
+        }
+    }
 
-            if (cursor.moveToFirst()) {
-                do {
-                    Transaction transaction = new Transaction();
-                    transaction.setId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID)));
-                    transaction.setAmount(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_AMOUNT)));
-                    transaction.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION)));
-                    transaction.setType(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TYPE)));
-                    transaction.setCategory(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CATEGORY)));
-
-                    try {
-                        transaction.setDate(dateFormat.parse(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DATE))));
-                    } catch (ParseException e) {
-                        transaction.setDate(new Date());
-                    }
-
-                    transactions.add(transaction);
-                } while (cursor.moveToNext());
-            }
+    public CompletableFuture<List<Transaction>> searchTransactionsAsync(String query, int offset, int limit) {
+        return scheduler.read(DatabaseScheduler.Priority.UI, () -> searchTransactions(query, offset, limit));
+    }
+
+    public void searchTransactionsAsync(String query, int offset, int limit,
+                                        DatabaseCallback<List<Transaction>> callback) {
+        scheduler.deliver(searchTransactionsAsync(query, offset, limit), callback);
+    }
+
+    // Stream every transaction to the visitor without building a list
+    public void visitAllTransactions(String[] projection, TransactionRowMapper.RowVisitor visitor) {
+        try (Cursor cursor = queryTransactions(projection, null, null)) {
+            new TransactionRowMapper(cursor).visitAll(visitor);
         }
-        return transactions;
     }
 
-    // Dalam DatabaseHelper.java
-    public double getCurrentBalance() {
-        double income = getTotalIncome();
-        double expense = getTotalExpense();
-        return income - expense;
+    // Read from monthly_totals, so the cost grows with months, not with rows
+    public TransactionTotals getTotals() {
+        return queryMonthlyTotals(null, null);
     }
 
-    private double getTotalIncome() {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT SUM(amount) FROM transactions WHERE type='income'", null);
-        if (cursor.moveToFirst()) {
-            return cursor.getDouble(0);
+    // Get transactions for specific month
+    public List<Transaction> getTransactionsForMonth(YearMonth month) {
+        try (Cursor cursor = queryTransactions(TransactionRowMapper.PROJECTION_FULL,
+                SELECTION_DATE_RANGE, getMonthBoundArgs(month))) {
+            return new TransactionRowMapper(cursor).mapAll();
         }
-        return 0;
     }
 
-    private double getTotalExpense() {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT SUM(amount) FROM transactions WHERE type='expense'", null);
-        if (cursor.moveToFirst()) {
-            return cursor.getDouble(0);
+    public void visitTransactionsForMonth(YearMonth month, String[] projection,
+                                          TransactionRowMapper.RowVisitor visitor) {
+        try (Cursor cursor = queryTransactions(projection, SELECTION_DATE_RANGE, getMonthBoundArgs(month))) {
+            new TransactionRowMapper(cursor).visitAll(visitor);
         }
-        return 0;
+    }
+
+    public TransactionTotals getTotalsForMonth(YearMonth month) {
+        return queryMonthlyTotals(COLUMN_YEAR_MONTH + " = ?",
+                new String[]{String.valueOf(toYearMonth(month))});
+    }
+
+    private TransactionTotals queryMonthlyTotals(String selection, String[] selectionArgs) {
+        TransactionTotals totals = new TransactionTotals();
+        String[] columns = {COLUMN_TYPE, "SUM(" + COLUMN_TOTAL + ")", "SUM(" + COLUMN_ROW_COUNT + ")"};
+        try (Cursor cursor = getReadableDatabase().query(TABLE_MONTHLY_TOTALS, columns,
+                selection, selectionArgs, COLUMN_TYPE, null, null)) {
+            while (cursor.moveToNext()) {
+                totals.add("income".equals(cursor.getString(0)), cursor.getLong(1), cursor.getInt(2));
+            }
+        }
+        return totals;
+    }
+
+    // monthly_totals key for a month, e.g. 202410
+    private static int toYearMonth(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    private Cursor queryTransactions(String[] projection, String selection, String[] selectionArgs) {
+        return queryTransactions(projection, selection, selectionArgs, null);
+    }
+
+    private Cursor queryTransactions(String[] projection, String selection, String[] selectionArgs, String limit) {
+        return getReadableDatabase().query(TABLE_TRANSACTIONS, projection, selection, selectionArgs,
+                null, null, ORDER_NEWEST_FIRST, limit);
+    }
+
+    // First and last epoch day of a month, as selection args for SELECTION_DATE_RANGE
+    private static String[] getMonthBoundArgs(YearMonth month) {
+        return new String[]{
+                String.valueOf(month.atDay(1).toEpochDay()),
+                String.valueOf(month.atEndOfMonth().toEpochDay())
+        };
+    }
+
+    // Dalam DatabaseHelper.java
+    public double getCurrentBalance() {
+        return getTotals().getBalance();
     }
 
     // Update transaction
@@ -194,16 +603,18 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
 
-        values.put(COLUMN_AMOUNT, transaction.getAmount());
+        values.put(COLUMN_AMOUNT, transaction.getAmountMinor());
         values.put(COLUMN_DESCRIPTION, transaction.getDescription());
         values.put(COLUMN_TYPE, transaction.getType());
         values.put(COLUMN_CATEGORY, transaction.getCategory());
-        values.put(COLUMN_DATE, dateFormat.format(transaction.getDate()));
+        values.put(COLUMN_DATE, transaction.getEpochDay());
 
         int result = db.update(TABLE_TRANSACTIONS, values, COLUMN_ID + " = ?",
                 new String[]{String.valueOf(transaction.getId())});
-        db.close();
 
+        if (result > 0) {
+            invalidationTracker.notifyChanged(TABLE_TRANSACTIONS);
+        }
         return result > 0;
     }
 
@@ -212,16 +623,25 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getWritableDatabase();
         int result = db.delete(TABLE_TRANSACTIONS, COLUMN_ID + " = ?",
                 new String[]{String.valueOf(id)});
-        db.close();
 
+        if (result > 0) {
+            invalidationTracker.notifyChanged(TABLE_TRANSACTIONS);
+        }
         return result > 0;
     }
 
+    public CompletableFuture<Boolean> deleteTransactionAsync(int id) {
+        return scheduler.write(() -> deleteTransaction(id));
+    }
+
+    public void deleteTransactionAsync(int id, DatabaseCallback<Boolean> callback) {
+        scheduler.deliver(deleteTransactionAsync(id), callback);
+    }
+
     // Get transactions count
     public int getTransactionsCount() {
-        String countQuery = "SELECT COUNT(*) FROM " + TABLE_TRANSACTIONS;
-        try (SQLiteDatabase db = this.getReadableDatabase();
-             Cursor cursor = db.rawQuery(countQuery, null)) {
+        String countQuery = "SELECT SUM(" + COLUMN_ROW_COUNT + ") FROM " + TABLE_MONTHLY_TOTALS;
+        try (Cursor cursor = getReadableDatabase().rawQuery(countQuery, null)) {
 
             if (cursor.moveToFirst()) {
                 return cursor.getInt(0);
@@ -231,43 +651,93 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     }
 
     // Get category spending for chart
-    public List<CategorySpending> getCategorySpending(int year, int month) {
+    public List<CategorySpending> getCategorySpending(YearMonth month) {
         List<CategorySpending> categorySpending = new ArrayList<>();
-        Calendar cal = Calendar.getInstance();
-        cal.set(year, month, 1);
-        String startDate = dateFormat.format(cal.getTime());
+        String selectQuery = "SELECT " + COLUMN_CATEGORY + ", " + COLUMN_TOTAL + " FROM " + TABLE_MONTHLY_TOTALS +
+                " WHERE " + COLUMN_YEAR_MONTH + " = ? AND " + COLUMN_TYPE + " = 'expense'";
 
-        cal.set(Calendar.DAY_OF_MONTH, cal.getActualMaximum(Calendar.DAY_OF_MONTH));
-        String endDate = dateFormat.format(cal.getTime());
-
-        String selectQuery = "SELECT " + COLUMN_CATEGORY + ", SUM(" + COLUMN_AMOUNT + ") FROM " + TABLE_TRANSACTIONS +
-                " WHERE " + COLUMN_TYPE + " = 'expense' AND " + COLUMN_DATE + " BETWEEN ? AND ? GROUP BY " + COLUMN_CATEGORY;
-
-        try (SQLiteDatabase db = this.getReadableDatabase();
-             Cursor cursor = db.rawQuery(selectQuery, new String[]{startDate, endDate})) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(selectQuery,
+                new String[]{String.valueOf(toYearMonth(month))})) {
 
             if (cursor.moveToFirst()) {
                 do {
                     String category = cursor.getString(0);
-                    double amount = cursor.getDouble(1);
-                    categorySpending.add(new CategorySpending(category, amount));
+                    long amountMinor = cursor.getLong(1);
+                    categorySpending.add(new CategorySpending(category, amountMinor));
                 } while (cursor.moveToNext());
             }
         }
         return categorySpending;
     }
 
+    /**
+     * Store the rates of one fetched span, keyed by epoch day, and record the span
+     * as fetched. Each day's rates are indexed like currencies; NaN means no rate.
+     * Days without rates inside the span are weekends or holidays.
+     */
+    public void saveExchangeRates(long startDay, long endDay, Map<Long, double[]> ratesByDay, String[] currencies) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        String insertSql = "INSERT OR REPLACE INTO " + TABLE_EXCHANGE_RATES + " ("
+                + COLUMN_DATE + ", " + COLUMN_CURRENCY + ", " + COLUMN_RATE + ") VALUES (?, ?, ?)";
+
+        db.beginTransaction();
+        try (SQLiteStatement statement = db.compileStatement(insertSql)) {
+            for (Map.Entry<Long, double[]> day : ratesByDay.entrySet()) {
+                double[] rates = day.getValue();
+                for (int i = 0; i < rates.length; i++) {
+                    if (Double.isNaN(rates[i])) continue;
+                    statement.bindLong(1, day.getKey());
+                    statement.bindString(2, currencies[i]);
+                    statement.bindDouble(3, rates[i]);
+                    statement.executeInsert();
+                }
+            }
+
+            ContentValues span = new ContentValues();
+            span.put(COLUMN_START_DAY, startDay);
+            span.put(COLUMN_END_DAY, endDay);
+            db.insert(TABLE_EXCHANGE_RATE_SPANS, null, span);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Every fetched span as {startDay, endDay}; spans may overlap or touch
+    public List<long[]> getExchangeRateSpans() {
+        List<long[]> spans = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_EXCHANGE_RATE_SPANS,
+                new String[]{COLUMN_START_DAY, COLUMN_END_DAY}, null, null, null, null, COLUMN_START_DAY)) {
+            while (cursor.moveToNext()) {
+                spans.add(new long[]{cursor.getLong(0), cursor.getLong(1)});
+            }
+        }
+        return spans;
+    }
+
+    // Stream the stored rates of the days from startDay to endDay, in date order
+    public void visitExchangeRates(long startDay, long endDay, ExchangeRateVisitor visitor) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_EXCHANGE_RATES,
+                new String[]{COLUMN_DATE, COLUMN_CURRENCY, COLUMN_RATE}, SELECTION_DATE_RANGE,
+                new String[]{String.valueOf(startDay), String.valueOf(endDay)}, null, null, COLUMN_DATE)) {
+            while (cursor.moveToNext()) {
+                visitor.visit(cursor.getLong(0), cursor.getString(1), cursor.getDouble(2));
+            }
+        }
+    }
+
     // Inner class for category spending
     public static class CategorySpending {
         private final String category;
-        private final double amount;
+        private final long amountMinor;
 
-        public CategorySpending(String category, double amount) {
+        public CategorySpending(String category, long amountMinor) {
             this.category = category;
-            this.amount = amount;
+            this.amountMinor = amountMinor;
         }
 
         public String getCategory() { return category; }
-        public double getAmount() { return amount; }
+        public double getAmount() { return Transaction.toMajorUnits(amountMinor); }
+        public long getAmountMinor() { return amountMinor; }
     }
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.example.moneymate.database;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide threads for database work. Writes run one at a time on a single
+ * lane, in the order they were submitted. Reads share a small pool and are taken
+ * by priority, so a query the user is waiting for jumps ahead of background work.
+ * Both lanes let their threads die when idle.
+ */
+public final class DatabaseScheduler {
+    private static final String TAG = "DatabaseScheduler";
+
+    public enum Priority {
+        // Listed from most to least urgent
+        UI,
+        NORMAL,
+        BACKGROUND
+    }
+
+    // WAL allows readers next to the writer; more threads than this only contend
+    private static final int READER_THREADS = 2;
+    private static final long IDLE_TIMEOUT_SECONDS = 30;
+
+    private static volatile DatabaseScheduler instance;
+
+    private final ThreadPoolExecutor writer;
+    private final ThreadPoolExecutor readers;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Executor mainExecutor = mainHandler::post;
+    // Keeps tasks of equal priority in submission order
+    private final AtomicLong sequence = new AtomicLong();
+
+    public static DatabaseScheduler getInstance() {
+        if (instance == null) {
+            synchronized (DatabaseScheduler.class) {
+                if (instance == null) {
+                    instance = new DatabaseScheduler();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private DatabaseScheduler() {
+        writer = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), namedThreads("db-writer"));
+        writer.allowCoreThreadTimeOut(true);
+
+        readers = new ThreadPoolExecutor(READER_THREADS, READER_THREADS, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), namedThreads("db-reader"));
+        readers.allowCoreThreadTimeOut(true);
+    }
+
+    public <T> CompletableFuture<T> read(Priority priority, Callable<T> query) {
+        Task<T> task = new Task<>(priority, sequence.getAndIncrement(), query);
+        readers.execute(task);
+        return task.future;
+    }
+
+    public <T> CompletableFuture<T> write(Callable<T> statement) {
+        Task<T> task = new Task<>(Priority.NORMAL, sequence.getAndIncrement(), statement);
+        writer.execute(task);
+        return task.future;
+    }
+
+    public void postToMain(Runnable action) {
+        mainHandler.post(action);
+    }
+
+    /**
+     * Deliver the result on the main thread while the owner is alive. When the
+     * owner is destroyed first the future is cancelled, so work still waiting in
+     * a queue is skipped and the callback never runs. Call from the main thread.
+     */
+    public <T> void deliver(CompletableFuture<T> future, LifecycleOwner owner,
+                            DatabaseHelper.DatabaseCallback<T> callback) {
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            future.cancel(false);
+            return;
+        }
+
+        LifecycleEventObserver cancelOnDestroy = (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                future.cancel(false);
+            }
+        };
+        lifecycle.addObserver(cancelOnDestroy);
+
+        future.whenCompleteAsync((result, error) -> {
+            lifecycle.removeObserver(cancelOnDestroy);
+            if (future.isCancelled()) return;
+            if (error != null) {
+                Log.e(TAG, "Database task failed", error);
+                return;
+            }
+            callback.onComplete(result);
+        }, mainExecutor);
+    }
+
+    // Same as deliver, without a lifecycle to tie it to
+    public <T> void deliver(CompletableFuture<T> future, DatabaseHelper.DatabaseCallback<T> callback) {
+        future.whenCompleteAsync((result, error) -> {
+            if (future.isCancelled()) return;
+            if (error != null) {
+                Log.e(TAG, "Database task failed", error);
+                return;
+            }
+            callback.onComplete(result);
+        }, mainExecutor);
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> new Thread(runnable, prefix + "-" + count.incrementAndGet());
+    }
+
+    // Runnable handed to the pools directly; submit() would wrap it and lose the ordering
+    private static final class Task<T> implements Runnable, Comparable<Task<?>> {
+        final Priority priority;
+        final long sequence;
+        final Callable<T> work;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Task(Priority priority, long sequence, Callable<T> work) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            // Cancelled while still queued
+            if (future.isDone()) return;
+            try {
+                future.complete(work.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+
+        @Override
+        public int compareTo(@NonNull Task<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.moneymate.database;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a version counter per table. Every committed write bumps the counter of
+ * the table it touched, so a reader can tell whether anything changed since its
+ * last query by comparing two numbers instead of re-running the query.
+ */
+public class InvalidationTracker {
+
+    public interface Observer {
+        void onInvalidated(String table);
+    }
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Observer> observers = new CopyOnWriteArrayList<>();
+
+    public long getVersion(String table) {
+        AtomicLong version = versions.get(table);
+        return version != null ? version.get() : 0;
+    }
+
+    // Call after the write has been committed, never from inside a transaction
+    public void notifyChanged(String table) {
+        versions.computeIfAbsent(table, key -> new AtomicLong()).incrementAndGet();
+        for (Observer observer : observers) {
+            observer.onInvalidated(table);
+        }
+    }
+
+    public void addObserver(Observer observer) {
+        observers.addIfAbsent(observer);
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.moneymate.database;
+
+import android.util.Log;
+
+/**
+ * A query that remembers the table version it last loaded. While started it
+ * re-runs on a background thread whenever its table is invalidated; calling
+ * {@link #refresh()} when nothing changed is a no-op. Results are posted to the
+ * main thread, and a result that was overtaken by a newer run is dropped.
+ * The last result is kept, so a new screen subscribing to an unchanged table
+ * gets it back without touching the database. One subscriber at a time.
+ */
+public class ObservableQuery<T> implements InvalidationTracker.Observer {
+    private static final String TAG = "ObservableQuery";
+
+    public interface Loader<T> {
+        T load();
+    }
+
+    private final InvalidationTracker tracker;
+    private final String table;
+    private final Loader<T> loader;
+    private final DatabaseScheduler scheduler;
+
+    private DatabaseHelper.DatabaseCallback<T> callback;
+    // Table version of the latest run that was started, -1 before the first one
+    private long requestedVersion = -1;
+    private T result;
+    private long resultVersion = -1;
+
+    ObservableQuery(InvalidationTracker tracker, String table, Loader<T> loader, DatabaseScheduler scheduler) {
+        this.tracker = tracker;
+        this.table = table;
+        this.loader = loader;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Start delivering results to the callback. Loads right away if the table
+     * changed since the last run, otherwise the previous result still stands.
+     */
+    public void start(DatabaseHelper.DatabaseCallback<T> callback) {
+        T cached = null;
+        synchronized (this) {
+            this.callback = callback;
+            if (resultVersion == tracker.getVersion(table)) {
+                cached = result;
+            }
+        }
+        tracker.addObserver(this);
+        if (cached != null) {
+            callback.onComplete(cached);
+        } else {
+            refresh();
+        }
+    }
+
+    // Stop listening; the last loaded version is kept so a later start can skip the query
+    public void stop() {
+        tracker.removeObserver(this);
+        synchronized (this) {
+            callback = null;
+        }
+    }
+
+    // Re-run only if the table changed since the last run
+    public void refresh() {
+        long version = tracker.getVersion(table);
+        synchronized (this) {
+            if (callback == null || version == requestedVersion) return;
+            requestedVersion = version;
+        }
+        // Someone is waiting on screen for this one
+        scheduler.read(DatabaseScheduler.Priority.UI, () -> {
+            run(version);
+            return null;
+        }).whenComplete((ignored, error) -> {
+            if (error == null) return;
+            Log.e(TAG, "Query on " + table + " failed", error);
+            // Forget the failed run so the next refresh tries again
+            synchronized (this) {
+                if (requestedVersion == version) {
+                    requestedVersion = -1;
+                }
+            }
+        });
+    }
+
+    // Re-run even if nothing changed, e.g. after the caller discarded the last result
+    public void reload() {
+        synchronized (this) {
+            requestedVersion = -1;
+        }
+        refresh();
+    }
+
+    @Override
+    public void onInvalidated(String changedTable) {
+        if (table.equals(changedTable)) {
+            refresh();
+        }
+    }
+
+    private void run(long version) {
+        T loaded = loader.load();
+        scheduler.postToMain(() -> {
+            DatabaseHelper.DatabaseCallback<T> target;
+            synchronized (this) {
+                if (version != requestedVersion) return;
+                result = loaded;
+                resultVersion = version;
+                target = callback;
+            }
+            if (target != null) {
+                target.onComplete(loaded);
+            }
+        });
+    }
+}
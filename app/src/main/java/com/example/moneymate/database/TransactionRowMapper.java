@@ -0,0 +1,111 @@
+package com.example.moneymate.database;
+
+import android.database.Cursor;
+
+import com.example.moneymate.models.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads transaction rows from a cursor. Column indices are resolved once when the
+ * mapper is created, and columns missing from the projection are never touched.
+ */
+public class TransactionRowMapper {
+    // Every column, for screens that show the transaction itself
+    public static final String[] PROJECTION_FULL = {
+            DatabaseHelper.COLUMN_ID,
+            DatabaseHelper.COLUMN_AMOUNT,
+            DatabaseHelper.COLUMN_DESCRIPTION,
+            DatabaseHelper.COLUMN_TYPE,
+            DatabaseHelper.COLUMN_CATEGORY,
+            DatabaseHelper.COLUMN_DATE
+    };
+
+    // Just enough to sum income and expense, without reading any strings
+    public static final String[] PROJECTION_AMOUNT_TYPE = {
+            DatabaseHelper.COLUMN_AMOUNT,
+            "(" + DatabaseHelper.COLUMN_TYPE + " = 'income') AS " + DatabaseHelper.COLUMN_IS_INCOME
+    };
+
+    /**
+     * Receives each row of a streamed query. The mapper is positioned on the current
+     * row and is only valid for the duration of the call.
+     */
+    public interface RowVisitor {
+        void onRow(TransactionRowMapper row);
+    }
+
+    private final Cursor cursor;
+    private final int idIndex;
+    private final int amountIndex;
+    private final int descriptionIndex;
+    private final int typeIndex;
+    private final int categoryIndex;
+    private final int dateIndex;
+    private final int isIncomeIndex;
+
+    public TransactionRowMapper(Cursor cursor) {
+        this.cursor = cursor;
+        this.idIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_ID);
+        this.amountIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_AMOUNT);
+        this.descriptionIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_DESCRIPTION);
+        this.typeIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_TYPE);
+        this.categoryIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_CATEGORY);
+        this.dateIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_DATE);
+        this.isIncomeIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_IS_INCOME);
+    }
+
+    public int getId() {
+        return idIndex >= 0 ? cursor.getInt(idIndex) : 0;
+    }
+
+    public long getAmountMinor() {
+        return amountIndex >= 0 ? cursor.getLong(amountIndex) : 0;
+    }
+
+    public String getDescription() {
+        return descriptionIndex >= 0 ? cursor.getString(descriptionIndex) : null;
+    }
+
+    public String getType() {
+        if (typeIndex >= 0) {
+            return cursor.getString(typeIndex);
+        }
+        return isIncome() ? "income" : "expense";
+    }
+
+    public String getCategory() {
+        return categoryIndex >= 0 ? cursor.getString(categoryIndex) : null;
+    }
+
+    public long getEpochDay() {
+        return dateIndex >= 0 ? cursor.getLong(dateIndex) : 0;
+    }
+
+    public boolean isIncome() {
+        if (isIncomeIndex >= 0) {
+            return cursor.getInt(isIncomeIndex) != 0;
+        }
+        return typeIndex >= 0 && "income".equals(cursor.getString(typeIndex));
+    }
+
+    public Transaction toTransaction() {
+        return new Transaction(getId(), getAmountMinor(), getDescription(), getType(),
+                getCategory(), getEpochDay());
+    }
+
+    public List<Transaction> mapAll() {
+        List<Transaction> transactions = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            transactions.add(toTransaction());
+        }
+        return transactions;
+    }
+
+    public void visitAll(RowVisitor visitor) {
+        while (cursor.moveToNext()) {
+            visitor.onRow(this);
+        }
+    }
+}
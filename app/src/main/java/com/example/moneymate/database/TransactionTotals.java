@@ -0,0 +1,34 @@
+package com.example.moneymate.database;
+
+import com.example.moneymate.models.Transaction;
+
+/**
+ * Income and expense sums in minor units, read from monthly_totals or filled by
+ * streaming rows through it
+ */
+public class TransactionTotals implements TransactionRowMapper.RowVisitor {
+    private long incomeMinor;
+    private long expenseMinor;
+    private int count;
+
+    @Override
+    public void onRow(TransactionRowMapper row) {
+        add(row.isIncome(), row.getAmountMinor(), 1);
+    }
+
+    void add(boolean income, long amountMinor, int rows) {
+        if (income) {
+            incomeMinor += amountMinor;
+        } else {
+            expenseMinor += amountMinor;
+        }
+        count += rows;
+    }
+
+    public double getIncome() { return Transaction.toMajorUnits(incomeMinor); }
+    public double getExpense() { return Transaction.toMajorUnits(expenseMinor); }
+    public double getBalance() { return Transaction.toMajorUnits(incomeMinor - expenseMinor); }
+    public long getIncomeMinor() { return incomeMinor; }
+    public long getExpenseMinor() { return expenseMinor; }
+    public int getCount() { return count; }
+}
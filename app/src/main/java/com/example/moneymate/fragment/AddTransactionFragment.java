@@ -18,12 +18,12 @@ import androidx.navigation.Navigation;
 
 import com.example.moneymate.services.CurrencyService;
 import com.example.moneymate.database.DatabaseHelper;
+import com.example.moneymate.database.DatabaseScheduler;
 import com.example.moneymate.R;
 import com.example.moneymate.models.Transaction;
+import com.example.moneymate.utils.DateFormats;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Locale;
+import java.time.LocalDate;
 
 public class AddTransactionFragment extends Fragment {
     private static final String TAG = "AddTransactionFragment";
@@ -31,7 +31,7 @@ public class AddTransactionFragment extends Fragment {
     private EditText etAmount, etDescription;
     private Spinner spinnerType, spinnerCategory;
     private Button btnDate, btnSave;
-    private Calendar selectedDate;
+    private LocalDate selectedDate;
     private DatabaseHelper dbHelper;
     private CurrencyService currencyService;
     private String displayCurrency;
@@ -48,7 +48,7 @@ public class AddTransactionFragment extends Fragment {
         initDatabase();
         initCurrencyService();
 
-        selectedDate = Calendar.getInstance();
+        selectedDate = LocalDate.now();
         loadDisplayCurrency();
 
         initViews(view);
@@ -72,7 +72,7 @@ public class AddTransactionFragment extends Fragment {
     private void initDatabase() {
         try {
             if (getContext() != null) {
-                dbHelper = new DatabaseHelper(getContext());
+                dbHelper = DatabaseHelper.getInstance(getContext());
                 Log.d(TAG, "DatabaseHelper initialized successfully");
             }
         } catch (Exception e) {
@@ -83,7 +83,7 @@ public class AddTransactionFragment extends Fragment {
     private void initCurrencyService() {
         try {
             if (getContext() != null) {
-                currencyService = new CurrencyService(getContext());
+                currencyService = CurrencyService.getInstance(getContext());
                 Log.d(TAG, "CurrencyService initialized successfully");
             }
         } catch (Exception e) {
@@ -177,21 +177,21 @@ public class AddTransactionFragment extends Fragment {
 
     private void setupDatePicker() {
         try {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
             if (btnDate != null) {
-                btnDate.setText(dateFormat.format(selectedDate.getTime()));
+                btnDate.setText(DateFormats.numericDay().format(selectedDate));
 
                 btnDate.setOnClickListener(v -> {
                     try {
                         if (getContext() != null) {
                             DatePickerDialog datePickerDialog = new DatePickerDialog(getContext(),
                                     (view, year, month, dayOfMonth) -> {
-                                        selectedDate.set(year, month, dayOfMonth);
-                                        btnDate.setText(dateFormat.format(selectedDate.getTime()));
+                                        // The picker's month is 0-based
+                                        selectedDate = LocalDate.of(year, month + 1, dayOfMonth);
+                                        btnDate.setText(DateFormats.numericDay().format(selectedDate));
                                     },
-                                    selectedDate.get(Calendar.YEAR),
-                                    selectedDate.get(Calendar.MONTH),
-                                    selectedDate.get(Calendar.DAY_OF_MONTH));
+                                    selectedDate.getYear(),
+                                    selectedDate.getMonthValue() - 1,
+                                    selectedDate.getDayOfMonth());
                             datePickerDialog.show();
                         }
                     } catch (Exception e) {
@@ -263,20 +263,29 @@ public class AddTransactionFragment extends Fragment {
 
             // Save transaction
             if (dbHelper != null) {
-                Transaction transaction = new Transaction(0, amountInIDR, description, type, category, selectedDate.getTime());
-                long id = dbHelper.addTransaction(transaction);
-
-                if (id > 0) {
-                    Toast.makeText(getContext(), "Transaksi berhasil ditambahkan", Toast.LENGTH_SHORT).show();
-
-                    // Clear form
-                    clearForm();
-
-                    // Navigate back to home
-                    navigateToHome();
-                } else {
-                    Toast.makeText(getContext(), "Gagal menyimpan transaksi", Toast.LENGTH_SHORT).show();
-                }
+                Transaction transaction = new Transaction(0, Transaction.toMinorUnits(amountInIDR),
+                        description, type, category, selectedDate.toEpochDay());
+                // Saved on the writer thread; one tap saves once
+                btnSave.setEnabled(false);
+                // The insert is never cancelled, only its result is dropped if the view is gone
+                DatabaseScheduler.getInstance().deliver(dbHelper.addTransactionAsync(transaction)
+                        .exceptionally(error -> {
+                            Log.e(TAG, "Error saving transaction: " + error.getMessage(), error);
+                            return -1L;
+                        }), getViewLifecycleOwner(), id -> {
+                    btnSave.setEnabled(true);
+                    if (id > 0) {
+                        Toast.makeText(getContext(), "Transaksi berhasil ditambahkan", Toast.LENGTH_SHORT).show();
+
+                        // Clear form
+                        clearForm();
+
+                        // Navigate back to home
+                        navigateToHome();
+                    } else {
+                        Toast.makeText(getContext(), "Gagal menyimpan transaksi", Toast.LENGTH_SHORT).show();
+                    }
+                });
             } else {
                 Toast.makeText(getContext(), "Database tidak tersedia", Toast.LENGTH_SHORT).show();
             }
@@ -297,10 +306,9 @@ public class AddTransactionFragment extends Fragment {
             if (spinnerCategory != null) spinnerCategory.setSelection(0);
 
             // Reset date to today
-            selectedDate = Calendar.getInstance();
+            selectedDate = LocalDate.now();
             if (btnDate != null) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-                btnDate.setText(dateFormat.format(selectedDate.getTime()));
+                btnDate.setText(DateFormats.numericDay().format(selectedDate));
             }
 
             Log.d(TAG, "Form cleared successfully");
@@ -335,7 +343,7 @@ public class AddTransactionFragment extends Fragment {
     private double calculateCurrentBalance() {
         try {
             if (dbHelper == null && getContext() != null) {
-                dbHelper = new DatabaseHelper(getContext());
+                dbHelper = DatabaseHelper.getInstance(getContext());
             }
 
             if (dbHelper != null) {
@@ -5,10 +5,13 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
 import android.widget.TextView;
@@ -20,8 +23,12 @@ import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.moneymate.services.CurrencyCode;
 import com.example.moneymate.services.CurrencyService;
 import com.example.moneymate.database.DatabaseHelper;
+import com.example.moneymate.database.DatabaseScheduler;
+import com.example.moneymate.database.ObservableQuery;
+import com.example.moneymate.database.TransactionTotals;
 import com.example.moneymate.R;
 import com.example.moneymate.models.Transaction;
 import com.example.moneymate.adapter.TransactionAdapter;
@@ -35,12 +42,32 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class HomeFragment extends Fragment {
     private static final String TAG = "HomeFragment";
+    // Start loading the next page when this few rows are left below the screen
+    private static final int LOAD_MORE_THRESHOLD_ROWS = 10;
+    private static final String QUERY_FEED = "home_feed";
+    private static final String QUERY_TOTALS = "home_totals";
     private DatabaseHelper dbHelper;
     private RecyclerView recyclerView;
+    private boolean hasMorePages = true;
+    // Set while the next page is queried, cleared when it arrives
+    private boolean isLoadingPage;
+    private EditText etSearch;
+    private String searchQuery = "";
+    // Search query the rows in transactions came from; empty while they are the feed
+    private String listQuery = "";
+    // Re-run only after a write to the transactions table, so coming back costs nothing
+    private ObservableQuery<List<Transaction>> feedQuery;
+    private ObservableQuery<TransactionTotals> totalsQuery;
+    private TransactionTotals totals;
+    private CompletableFuture<List<Transaction>> pendingSearch;
+    // The query behind isLoadingPage, kept so it can be cancelled with the view
+    private CompletableFuture<List<Transaction>> pendingPage;
     private TransactionAdapter adapter;
+    // Rows loaded so far; the adapter gets a copy so it can diff in the background
     private List<Transaction> transactions = new ArrayList<>();
     private TextView tvBalance, tvIncome, tvExpense, tvCurrencyBalance;
     private LinearLayout emptyState;
@@ -61,8 +88,7 @@ public class HomeFragment extends Fragment {
         try {
             initViews(view);
             setupRecyclerView();
-            loadTransactions();
-            updateSummary();
+            observeQueries();
         } catch (Exception e) {
             Log.e(TAG, "Error in onCreateView", e);
             Toast.makeText(getContext(), "Error initializing fragment", Toast.LENGTH_SHORT).show();
@@ -73,11 +99,11 @@ public class HomeFragment extends Fragment {
 
     private void initViews(View view) {
         try {
-            dbHelper = new DatabaseHelper(getContext());
+            dbHelper = DatabaseHelper.getInstance(getContext());
 
             // Initialize currency service with proper context check
             if (getContext() != null) {
-                currencyService = new CurrencyService(getContext());
+                currencyService = CurrencyService.getInstance(getContext());
             } else {
                 Log.e(TAG, "Context is null during initialization");
                 return;
@@ -95,6 +121,28 @@ public class HomeFragment extends Fragment {
             tvCurrencyBalance = view.findViewById(R.id.tv_currency_balance);
             btnCurrencyConverter = view.findViewById(R.id.action_currency_converter);
             recyclerView = view.findViewById(R.id.recycler_view);
+            etSearch = view.findViewById(R.id.et_search);
+
+            // Search as the user types; an empty box goes back to the normal feed
+            etSearch.addTextChangedListener(new TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+                @Override
+                public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+                @Override
+                public void afterTextChanged(Editable s) {
+                    // A single letter matches too much to be worth a query; show the feed instead
+                    String query = s.toString().trim();
+                    if (query.length() < DatabaseHelper.MIN_SEARCH_LENGTH) {
+                        query = "";
+                    }
+                    if (query.equals(searchQuery)) return;
+                    searchQuery = query;
+                    loadTransactions();
+                }
+            });
             emptyState = view.findViewById(R.id.empty_state);
 
             // Set up currency button
@@ -131,7 +179,6 @@ public class HomeFragment extends Fragment {
                 }
             });
 
-            loadCurrencyBalance();
         } catch (Exception e) {
             Log.e(TAG, "Error initializing views", e);
             Toast.makeText(getContext(), "Error initializing views", Toast.LENGTH_SHORT).show();
@@ -170,6 +217,7 @@ public class HomeFragment extends Fragment {
                                 if (adapter != null) {
                                     adapter.updateCurrency(displayCurrency, currencyService);
                                 }
+                                prefetchHistoricalRates();
                                 refreshData();
                                 Toast.makeText(getContext(), "Mata uang diubah ke: " + selected, Toast.LENGTH_SHORT).show();
                                 dialog.dismiss();
@@ -205,6 +253,7 @@ public class HomeFragment extends Fragment {
                                 if (adapter != null) {
                                     adapter.updateCurrency(displayCurrency, currencyService);
                                 }
+                                prefetchHistoricalRates();
                                 refreshData();
                                 Toast.makeText(getContext(), "Mata uang diubah ke: " + selected, Toast.LENGTH_SHORT).show();
                                 dialog.dismiss();
@@ -268,51 +317,192 @@ public class HomeFragment extends Fragment {
     private void setupRecyclerView() {
         if (getContext() == null) return;
 
-        adapter = new TransactionAdapter(transactions, this::deleteTransaction, displayCurrency, currencyService);
-        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        adapter = new TransactionAdapter(this::deleteTransaction, displayCurrency, currencyService);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        recyclerView.setLayoutManager(layoutManager);
         recyclerView.setAdapter(adapter);
+
+        // The list is the scrolling view, so only the rows on screen are bound
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView view, int dx, int dy) {
+                if (dy <= 0) return;
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= adapter.getItemCount() - LOAD_MORE_THRESHOLD_ROWS) {
+                    loadNextPage();
+                }
+            }
+        });
+    }
+
+    private void observeQueries() {
+        // The handles outlive this fragment, so the loaders only capture the helper
+        DatabaseHelper helper = dbHelper;
+        feedQuery = helper.observeTransactions(QUERY_FEED,
+                () -> helper.getTransactionsPage(null, DatabaseHelper.DEFAULT_PAGE_SIZE));
+        totalsQuery = helper.observeTransactions(QUERY_TOTALS, helper::getTotals);
+
+        feedQuery.start(this::onFeedLoaded);
+        totalsQuery.start(this::onTotalsLoaded);
+    }
+
+    private void onFeedLoaded(List<Transaction> firstPage) {
+        // Search results stay on screen until the search box is cleared
+        if (!searchQuery.isEmpty()) return;
+
+        // Coming back from a search the loaded rows are search hits, not feed pages
+        if (!listQuery.isEmpty() || firstPage.size() < DatabaseHelper.DEFAULT_PAGE_SIZE
+                || transactions.size() <= firstPage.size()) {
+            showTransactions("", firstPage);
+            return;
+        }
+
+        // The user scrolled past the first page; re-read everything down to the last
+        // loaded row so the list keeps its length and the diff only touches what changed
+        reloadLoadedRange();
+    }
+
+    private void reloadLoadedRange() {
+        Transaction last = transactions.get(transactions.size() - 1);
+        DatabaseScheduler.getInstance().deliver(dbHelper.getTransactionsThroughAsync(last),
+                getViewLifecycleOwner(), loaded -> {
+                    if (!searchQuery.isEmpty() || !listQuery.isEmpty() || transactions.isEmpty()) return;
+                    // A page was appended meanwhile; read again so it is covered too
+                    if (!sameKey(transactions.get(transactions.size() - 1), last)) {
+                        reloadLoadedRange();
+                        return;
+                    }
+                    transactions = new ArrayList<>(loaded);
+                    submitTransactions();
+                });
+    }
+
+    private void onTotalsLoaded(TransactionTotals loaded) {
+        totals = loaded;
+        updateSummary();
     }
 
     private void loadTransactions() {
         try {
             if (dbHelper == null) {
-                dbHelper = new DatabaseHelper(getContext());
+                dbHelper = DatabaseHelper.getInstance(getContext());
             }
 
-            transactions.clear();
-            transactions.addAll(dbHelper.getAllTransactions());
-
-            if (adapter != null) {
-                adapter.notifyDataSetChanged();
+            if (!searchQuery.isEmpty()) {
+                loadSearchResults(searchQuery);
+                return;
             }
 
-            if (transactions.isEmpty()) {
-                recyclerView.setVisibility(View.GONE);
-                emptyState.setVisibility(View.VISIBLE);
-            } else {
-                recyclerView.setVisibility(View.VISIBLE);
-                emptyState.setVisibility(View.GONE);
-            }
+            // Only the first page; the rest is loaded as the user scrolls
+            feedQuery.reload();
         } catch (Exception e) {
             Log.e(TAG, "Error loading transactions", e);
             Toast.makeText(getContext(), "Error loading transactions", Toast.LENGTH_SHORT).show();
         }
     }
 
-    private void updateSummary() {
-        try {
-            double totalIncome = 0;
-            double totalExpense = 0;
-
-            for (Transaction transaction : transactions) {
-                if (transaction.getType().equals("income")) {
-                    totalIncome += transaction.getAmount();
-                } else {
-                    totalExpense += transaction.getAmount();
-                }
+    private void loadSearchResults(String query) {
+        // A search the user has already typed past is skipped if it has not started yet
+        if (pendingSearch != null) {
+            pendingSearch.cancel(false);
+        }
+        pendingSearch = dbHelper.searchTransactionsAsync(query, 0, DatabaseHelper.DEFAULT_PAGE_SIZE);
+        DatabaseScheduler.getInstance().deliver(pendingSearch, getViewLifecycleOwner(), results -> {
+            if (!query.equals(searchQuery)) return;
+            showTransactions(query, results);
+        });
+    }
+
+    private void showTransactions(String query, List<Transaction> firstPage) {
+        listQuery = query;
+        hasMorePages = firstPage.size() == DatabaseHelper.DEFAULT_PAGE_SIZE;
+        transactions = new ArrayList<>(firstPage);
+        submitTransactions();
+    }
+
+    private void submitTransactions() {
+        if (adapter != null) {
+            adapter.submitList(new ArrayList<>(transactions));
+        }
+
+        if (transactions.isEmpty()) {
+            recyclerView.setVisibility(View.GONE);
+            emptyState.setVisibility(View.VISIBLE);
+        } else {
+            recyclerView.setVisibility(View.VISIBLE);
+            emptyState.setVisibility(View.GONE);
+        }
+        prefetchHistoricalRates();
+    }
+
+    // Rows convert at the rate of their own date; redraw the amounts once those rates are loaded
+    private void prefetchHistoricalRates() {
+        if (currencyService == null || adapter == null || getView() == null
+                || transactions.isEmpty() || displayCurrency.equals("IDR")) return;
+
+        long firstDay = Long.MAX_VALUE;
+        long lastDay = Long.MIN_VALUE;
+        for (Transaction transaction : transactions) {
+            firstDay = Math.min(firstDay, transaction.getEpochDay());
+            lastDay = Math.max(lastDay, transaction.getEpochDay());
+        }
+        DatabaseScheduler.getInstance().deliver(currencyService.prefetchHistoricalRates(firstDay, lastDay),
+                getViewLifecycleOwner(), loaded -> {
+                    if (loaded && adapter != null) {
+                        adapter.updateCurrency(displayCurrency, currencyService);
+                    }
+                });
+    }
+
+    private void loadNextPage() {
+        // One fling fires many scroll events; only the first one starts a query
+        if (!hasMorePages || isLoadingPage || transactions.isEmpty() || dbHelper == null) return;
+        // The rows on screen are about to be replaced by results for what was typed
+        if (!listQuery.equals(searchQuery)) return;
+
+        String query = listQuery;
+        int offset = transactions.size();
+        Transaction last = transactions.get(offset - 1);
+        CompletableFuture<List<Transaction>> page;
+        if (query.isEmpty()) {
+            page = dbHelper.getTransactionsPageAsync(last, DatabaseHelper.DEFAULT_PAGE_SIZE);
+        } else {
+            // Search results are ranked, not date ordered, so they page by offset
+            page = dbHelper.searchTransactionsAsync(query, offset, DatabaseHelper.DEFAULT_PAGE_SIZE);
+        }
+
+        isLoadingPage = true;
+        pendingPage = page;
+        // A failed page comes back as null, so the flag is cleared and the next scroll retries
+        DatabaseScheduler.getInstance().deliver(page.exceptionally(error -> {
+            Log.e(TAG, "Error loading next page", error);
+            return null;
+        }), getViewLifecycleOwner(), loaded -> {
+            isLoadingPage = false;
+            pendingPage = null;
+            if (loaded == null || !query.equals(listQuery) || transactions.size() != offset) return;
+            // The feed was reloaded meanwhile and no longer ends where this page starts
+            if (query.isEmpty() && !sameKey(transactions.get(offset - 1), last)) return;
+
+            hasMorePages = loaded.size() == DatabaseHelper.DEFAULT_PAGE_SIZE;
+            if (!loaded.isEmpty()) {
+                transactions.addAll(loaded);
+                submitTransactions();
             }
+        });
+    }
+
+    private static boolean sameKey(Transaction a, Transaction b) {
+        return a.getId() == b.getId() && a.getEpochDay() == b.getEpochDay();
+    }
+
+    private void updateSummary() {
+        if (totals == null) return;
 
-            double balance = totalIncome - totalExpense;
+        try {
+            double totalIncome = totals.getIncome();
+            double totalExpense = totals.getExpense();
+            double balance = totals.getBalance();
             final double finalTotalIncome = totalIncome;
             final double finalTotalExpense = totalExpense;
             final double finalBalance = balance;
@@ -323,10 +513,12 @@ public class HomeFragment extends Fragment {
                     public void onSuccess(Map<String, Double> rates) {
                         requireActivity().runOnUiThread(() -> {
                             try {
-                                double convertedBalance = currencyService.convertCurrency(finalBalance, "IDR", displayCurrency);
-                                double convertedIncome = currencyService.convertCurrency(finalTotalIncome, "IDR", displayCurrency);
-                                double convertedExpense = currencyService.convertCurrency(finalTotalExpense, "IDR", displayCurrency);
-                                updateSummaryUI(convertedBalance, convertedIncome, convertedExpense);
+                                double[] converted = {finalBalance, finalTotalIncome, finalTotalExpense};
+                                CurrencyCode target = CurrencyCode.fromCode(displayCurrency);
+                                if (target != null) {
+                                    currencyService.convertAll(converted, CurrencyCode.IDR, target);
+                                }
+                                updateSummaryUI(converted[0], converted[1], converted[2]);
 
                                 if (!displayCurrency.equals("IDR")) {
                                     NumberFormat idrFormat = NumberFormat.getCurrencyInstance(new Locale("id", "ID"));
@@ -387,56 +579,25 @@ public class HomeFragment extends Fragment {
         }
     }
 
-    private void loadCurrencyBalance() {
-        if (!displayCurrency.equals("IDR") && currencyService != null) {
-            currencyService.getExchangeRates(new CurrencyService.CurrencyCallback() {
-                @Override
-                public void onSuccess(Map<String, Double> rates) {
-                    requireActivity().runOnUiThread(() -> updateSummary());
-                }
-
-                @Override
-                public void onError(String error) {
-                    requireActivity().runOnUiThread(() -> {
-                        Toast.makeText(getActivity(), "Gagal memuat kurs mata uang", Toast.LENGTH_SHORT).show();
-                        updateSummary();
-                    });
-                }
-
-                @Override
-                public void onNetworkError() {
-                    requireActivity().runOnUiThread(() -> {
-                        Toast.makeText(getActivity(),
-                                "Tidak ada koneksi internet, menggunakan kurs lokal",
-                                Toast.LENGTH_LONG).show();
-                        updateSummary();
-                    });
-                }
-            });
-        }
-    }
-
     private void deleteTransaction(Transaction transaction) {
         try {
             new AlertDialog.Builder(requireContext())
                     .setTitle("Hapus Transaksi")
                     .setMessage("Apakah Anda yakin ingin menghapus transaksi ini?")
-                    .setPositiveButton("Ya", (dialog, which) -> {
-                        try {
-                            if (dbHelper.deleteTransaction(transaction.getId())) {
-                                int position = transactions.indexOf(transaction);
-                                transactions.remove(transaction);
-                                if (adapter != null) {
-                                    adapter.notifyItemRemoved(position);
+                    .setPositiveButton("Ya", (dialog, which) -> DatabaseScheduler.getInstance().deliver(
+                            dbHelper.deleteTransactionAsync(transaction.getId()).exceptionally(error -> {
+                                Log.e(TAG, "Error deleting transaction", error);
+                                return false;
+                            }), getViewLifecycleOwner(), deleted -> {
+                                if (deleted) {
+                                    transactions.remove(transaction);
+                                    submitTransactions();
+                                    // The feed and totals queries reload themselves after the delete
+                                    Toast.makeText(getActivity(), "Transaksi berhasil dihapus", Toast.LENGTH_SHORT).show();
+                                } else {
+                                    Toast.makeText(getActivity(), "Gagal menghapus transaksi", Toast.LENGTH_SHORT).show();
                                 }
-                                updateSummary();
-                                loadTransactions();
-                                Toast.makeText(getActivity(), "Transaksi berhasil dihapus", Toast.LENGTH_SHORT).show();
-                            }
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error deleting transaction", e);
-                        }
-                    })
+                            }))
                     .setNegativeButton("Tidak", null)
                     .show();
         } catch (Exception e) {
@@ -446,14 +607,20 @@ public class HomeFragment extends Fragment {
 
     public void refreshData() {
         try {
-            displayCurrency = prefs.getString(KEY_DISPLAY_CURRENCY, "IDR");
-            updateCurrencyFormat();
-            loadTransactions();
-            updateSummary();
-            loadCurrencyBalance();
-            if (adapter != null) {
-                adapter.updateCurrency(displayCurrency, currencyService);
+            String currency = prefs.getString(KEY_DISPLAY_CURRENCY, "IDR");
+            if (!currency.equals(displayCurrency)) {
+                displayCurrency = currency;
+                updateCurrencyFormat();
+                updateSummary();
+                if (adapter != null) {
+                    adapter.updateCurrency(displayCurrency, currencyService);
+                }
+                prefetchHistoricalRates();
             }
+
+            // No-ops unless a write changed the transactions table since the last load
+            if (feedQuery != null) feedQuery.refresh();
+            if (totalsQuery != null) totalsQuery.refresh();
         } catch (Exception e) {
             Log.e(TAG, "Error refreshing data", e);
         }
@@ -466,10 +633,15 @@ public class HomeFragment extends Fragment {
     }
 
     @Override
-    public void onDestroy() {
-        super.onDestroy();
-        if (dbHelper != null) {
-            dbHelper.close();
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (feedQuery != null) feedQuery.stop();
+        if (totalsQuery != null) totalsQuery.stop();
+        // deliver() only cancels the wrapped future, so skip the query itself if it has not run yet
+        if (pendingPage != null) {
+            pendingPage.cancel(false);
+            pendingPage = null;
         }
+        isLoadingPage = false;
     }
 }
\ No newline at end of file
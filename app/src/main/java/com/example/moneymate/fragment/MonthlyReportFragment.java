@@ -12,16 +12,17 @@ import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import java.text.NumberFormat;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Locale;
 import android.widget.LinearLayout;
 
 import com.example.moneymate.database.DatabaseHelper;
+import com.example.moneymate.database.TransactionTotals;
 import com.example.moneymate.R;
 import com.example.moneymate.models.Transaction;
 import com.example.moneymate.adapter.TransactionAdapter;
+import com.example.moneymate.utils.DateFormats;
 
 public class MonthlyReportFragment extends Fragment {
     private DatabaseHelper dbHelper;
@@ -30,9 +31,8 @@ public class MonthlyReportFragment extends Fragment {
     private RecyclerView recyclerView;
     private LinearLayout layoutEmptyState;
     private TransactionAdapter adapter;
-    private Calendar currentMonth;
+    private YearMonth currentMonth;
     private NumberFormat currencyFormat;
-    private SimpleDateFormat monthFormat;
 
     @Nullable
     @Override
@@ -47,10 +47,9 @@ public class MonthlyReportFragment extends Fragment {
     }
 
     private void initViews(View view) {
-        dbHelper = new DatabaseHelper(getContext());
+        dbHelper = DatabaseHelper.getInstance(getContext());
         currencyFormat = NumberFormat.getCurrencyInstance(new Locale("id", "ID"));
-        monthFormat = new SimpleDateFormat("MMMM yyyy", Locale.getDefault());
-        currentMonth = Calendar.getInstance();
+        currentMonth = YearMonth.now();
 
         tvMonth = view.findViewById(R.id.tv_month);
         tvTotalIncome = view.findViewById(R.id.tv_total_income);
@@ -63,44 +62,34 @@ public class MonthlyReportFragment extends Fragment {
         layoutEmptyState = view.findViewById(R.id.layout_empty_state);
 
         btnPrevMonth.setOnClickListener(v -> {
-            currentMonth.add(Calendar.MONTH, -1);
+            currentMonth = currentMonth.minusMonths(1);
             loadMonthlyData();
         });
 
         btnNextMonth.setOnClickListener(v -> {
-            currentMonth.add(Calendar.MONTH, 1);
+            currentMonth = currentMonth.plusMonths(1);
             loadMonthlyData();
         });
     }
 
     private void setupRecyclerView() {
-        adapter = new TransactionAdapter(new java.util.ArrayList<>(), null);
+        adapter = new TransactionAdapter(null);
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         recyclerView.setAdapter(adapter);
     }
 
     private void loadMonthlyData() {
-        tvMonth.setText(monthFormat.format(currentMonth.getTime()));
+        tvMonth.setText(DateFormats.month().format(currentMonth));
 
         // Add try-catch to handle potential database errors
         try {
-            List<Transaction> transactions = dbHelper.getTransactionsForMonth(
-                    currentMonth.get(Calendar.YEAR),
-                    currentMonth.get(Calendar.MONTH));
-
-            // Calculate totals
-            double totalIncome = 0;
-            double totalExpense = 0;
-
-            for (Transaction transaction : transactions) {
-                if (transaction.getType().equals("income")) {
-                    totalIncome += transaction.getAmount();
-                } else {
-                    totalExpense += transaction.getAmount();
-                }
-            }
+            List<Transaction> transactions = dbHelper.getTransactionsForMonth(currentMonth);
 
-            double balance = totalIncome - totalExpense;
+            // Calculate totals from amount and type only
+            TransactionTotals totals = dbHelper.getTotalsForMonth(currentMonth);
+            double totalIncome = totals.getIncome();
+            double totalExpense = totals.getExpense();
+            double balance = totals.getBalance();
 
             // Update UI
             tvTotalIncome.setText(currencyFormat.format(totalIncome));
@@ -115,6 +104,9 @@ public class MonthlyReportFragment extends Fragment {
                 tvBalance.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
             }
 
+            // Only rows that differ from the previous month's list are rebound
+            adapter.submitList(transactions);
+
             // Handle empty state
             if (transactions.isEmpty()) {
                 recyclerView.setVisibility(View.GONE);
@@ -122,10 +114,6 @@ public class MonthlyReportFragment extends Fragment {
             } else {
                 recyclerView.setVisibility(View.VISIBLE);
                 layoutEmptyState.setVisibility(View.GONE);
-
-                // Update adapter
-                adapter = new TransactionAdapter(transactions, null);
-                recyclerView.setAdapter(adapter);
             }
 
         } catch (Exception e) {
@@ -141,12 +129,4 @@ public class MonthlyReportFragment extends Fragment {
             tvTransactionCount.setText("0 transaksi");
         }
     }
-
-    @Override
-    public void onDestroyView() {
-        super.onDestroyView();
-        if (dbHelper != null) {
-            dbHelper.close();
-        }
-    }
 }
\ No newline at end of file
@@ -1,25 +1,19 @@
 package com.example.moneymate.models;
 
-import com.google.gson.annotations.SerializedName;
-import java.util.Map;
+import java.util.Arrays;
 
+// Decoded by a streaming type adapter (see services.RateJsonAdapters), not by reflection
 public class ExchangeRateResponse {
-    @SerializedName("amount")
     private double amount;
-
-    @SerializedName("base")
     private String base;
-
-    @SerializedName("date")
     private String date;
-
-    @SerializedName("rates")
-    private Map<String, Double> rates;
+    // Rate per base unit by CurrencyCode ordinal; NaN for currencies not in the response
+    private double[] rates;
 
     // Constructors
     public ExchangeRateResponse() {}
 
-    public ExchangeRateResponse(double amount, String base, String date, Map<String, Double> rates) {
+    public ExchangeRateResponse(double amount, String base, String date, double[] rates) {
         this.amount = amount;
         this.base = base;
         this.date = date;
@@ -39,7 +33,7 @@ public class ExchangeRateResponse {
         return date;
     }
 
-    public Map<String, Double> getRates() {
+    public double[] getRates() {
         return rates;
     }
 
@@ -56,7 +50,7 @@ public class ExchangeRateResponse {
         this.date = date;
     }
 
-    public void setRates(Map<String, Double> rates) {
+    public void setRates(double[] rates) {
         this.rates = rates;
     }
 
@@ -66,7 +60,7 @@ public class ExchangeRateResponse {
                 "amount=" + amount +
                 ", base='" + base + '\'' +
                 ", date='" + date + '\'' +
-                ", rates=" + rates +
+                ", rates=" + Arrays.toString(rates) +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,45 @@
+package com.example.moneymate.models;
+
+import java.util.Map;
+
+// Response of the Frankfurter time series endpoint, e.g. /2024-01-01..2024-03-31.
+// Decoded by a streaming type adapter (see services.RateJsonAdapters), not by reflection
+public class TimeSeriesResponse {
+    private double amount;
+    private String base;
+    private String startDate;
+    private String endDate;
+    // Epoch day -> rate per base unit by CurrencyCode ordinal; only business days are present
+    private Map<Long, double[]> rates;
+
+    public TimeSeriesResponse() {}
+
+    public TimeSeriesResponse(double amount, String base, String startDate, String endDate,
+                              Map<Long, double[]> rates) {
+        this.amount = amount;
+        this.base = base;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.rates = rates;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public String getBase() {
+        return base;
+    }
+
+    public String getStartDate() {
+        return startDate;
+    }
+
+    public String getEndDate() {
+        return endDate;
+    }
+
+    public Map<Long, double[]> getRates() {
+        return rates;
+    }
+}
@@ -1,52 +1,94 @@
 package com.example.moneymate.models;
 
 import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Date;
 
 public class Transaction implements Serializable {
+    // Amounts are kept as whole minor units (sen), dates as days since 1970-01-01
+    public static final int MINOR_UNITS_PER_MAJOR = 100;
+
     private int id;
-    private double amount;
+    private long amountMinor;
     private String description;
     private String type; // "income" or "expense"
     private String category;
-    private Date date;
+    private long epochDay;
 
     public Transaction() {}
 
     public Transaction(int id, double amount, String description, String type, String category, Date date) {
         this.id = id;
-        this.amount = amount;
+        this.amountMinor = toMinorUnits(amount);
+        this.description = description;
+        this.type = type;
+        this.category = category;
+        this.epochDay = toEpochDay(date);
+    }
+
+    public Transaction(int id, long amountMinor, String description, String type, String category, long epochDay) {
+        this.id = id;
+        this.amountMinor = amountMinor;
         this.description = description;
         this.type = type;
         this.category = category;
-        this.date = date;
+        this.epochDay = epochDay;
     }
 
     // Getters
     public int getId() { return id; }
-    public double getAmount() { return amount; }
+    public double getAmount() { return toMajorUnits(amountMinor); }
+    public long getAmountMinor() { return amountMinor; }
     public String getDescription() { return description; }
     public String getType() { return type; }
     public String getCategory() { return category; }
-    public Date getDate() { return date; }
+    public Date getDate() { return fromEpochDay(epochDay); }
+    public long getEpochDay() { return epochDay; }
+    public LocalDate getLocalDate() { return LocalDate.ofEpochDay(epochDay); }
 
     // Setters
     public void setId(int id) { this.id = id; }
-    public void setAmount(double amount) { this.amount = amount; }
+    public void setAmount(double amount) { this.amountMinor = toMinorUnits(amount); }
+    public void setAmountMinor(long amountMinor) { this.amountMinor = amountMinor; }
     public void setDescription(String description) { this.description = description; }
     public void setType(String type) { this.type = type; }
     public void setCategory(String category) { this.category = category; }
-    public void setDate(Date date) { this.date = date; }
+    public void setDate(Date date) { this.epochDay = toEpochDay(date); }
+    public void setEpochDay(long epochDay) { this.epochDay = epochDay; }
+    public void setLocalDate(LocalDate date) { this.epochDay = date.toEpochDay(); }
+
+    public static long toMinorUnits(double amount) {
+        return Math.round(amount * MINOR_UNITS_PER_MAJOR);
+    }
+
+    public static double toMajorUnits(long amountMinor) {
+        return (double) amountMinor / MINOR_UNITS_PER_MAJOR;
+    }
+
+    /**
+     * Local calendar day of the given instant, counted from 1970-01-01
+     */
+    public static long toEpochDay(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    /**
+     * Local midnight of the given epoch day
+     */
+    public static Date fromEpochDay(long epochDay) {
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
 
     @Override
     public String toString() {
         return "Transaction{" +
                 "id=" + id +
-                ", amount=" + amount +
+                ", amountMinor=" + amountMinor +
                 ", description='" + description + '\'' +
                 ", type='" + type + '\'' +
                 ", category='" + category + '\'' +
-                ", date=" + date +
+                ", epochDay=" + epochDay +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package com.example.moneymate.services;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Sets each request's read timeout from how fast the API has been answering,
+ * instead of a fixed 30 seconds. A dead or stalled connection is then given up
+ * after a few multiples of the usual response time.
+ */
+final class AdaptiveTimeoutInterceptor implements Interceptor {
+    private static final long MIN_READ_TIMEOUT_MS = 3000;
+    private static final long MAX_READ_TIMEOUT_MS = 15000;
+    // Timeout as a multiple of the average response time
+    private static final int LATENCY_MULTIPLIER = 4;
+    // Weight of the newest sample in the moving average
+    private static final double SMOOTHING = 0.2;
+
+    // Moving average of network response times; negative until the first response
+    private double averageLatencyMs = -1;
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        long start = System.nanoTime();
+        Response response = chain
+                .withReadTimeout((int) readTimeoutMs(), TimeUnit.MILLISECONDS)
+                .proceed(chain.request());
+
+        // Answers from the HTTP cache say nothing about the network
+        if (response.networkResponse() != null) {
+            record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return response;
+    }
+
+    private synchronized long readTimeoutMs() {
+        if (averageLatencyMs < 0) return MAX_READ_TIMEOUT_MS;
+        long timeout = (long) (averageLatencyMs * LATENCY_MULTIPLIER);
+        return Math.max(MIN_READ_TIMEOUT_MS, Math.min(MAX_READ_TIMEOUT_MS, timeout));
+    }
+
+    private synchronized void record(long latencyMs) {
+        averageLatencyMs = averageLatencyMs < 0
+                ? latencyMs
+                : SMOOTHING * latencyMs + (1 - SMOOTHING) * averageLatencyMs;
+    }
+}
@@ -1,13 +1,24 @@
 package com.example.moneymate.services;
 
 import com.example.moneymate.models.ExchangeRateResponse;
+import com.example.moneymate.models.TimeSeriesResponse;
 
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Path;
 import retrofit2.http.Query;
 
 // ApiService.java
 public interface ApiService {
+    // symbols: comma separated currencies to include, e.g. "USD,IDR"
     @GET("latest")
-    Call<ExchangeRateResponse> getRates(@Query("from") String baseCurrency);
+    Call<ExchangeRateResponse> getRates(@Query("from") String baseCurrency,
+                                        @Query("to") String symbols);
+
+    // Every business day from start to end (yyyy-MM-dd) in one response
+    @GET("{start}..{end}")
+    Call<TimeSeriesResponse> getTimeSeries(@Path("start") String startDate,
+                                           @Path("end") String endDate,
+                                           @Query("from") String baseCurrency,
+                                           @Query("to") String symbols);
 }
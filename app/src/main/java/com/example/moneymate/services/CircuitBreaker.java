@@ -0,0 +1,81 @@
+package com.example.moneymate.services;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stops calling the rates API after repeated failures. While open, requests are
+ * refused for a cool-down period and callers fall back to the last good rates.
+ * After the cool-down a single probe request is let through: if it succeeds the
+ * breaker closes, otherwise it opens again with a longer, jittered cool-down.
+ */
+final class CircuitBreaker {
+    private static final String TAG = "CircuitBreaker";
+    // Consecutive failures that open the breaker
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long BASE_COOL_DOWN_MS = 30 * 1000; // 30 seconds
+    private static final long MAX_COOL_DOWN_MS = 10 * 60 * 1000; // 10 minutes
+    private static final long BASE_RETRY_DELAY_MS = 1000;
+    private static final long MAX_RETRY_DELAY_MS = 30 * 1000;
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    // How often the breaker opened in a row, to grow the cool-down
+    private int timesOpened;
+    private long openUntil;
+
+    /**
+     * Whether a request may go out now. In the half-open state only the first
+     * caller gets through, as the probe; the rest are refused until it reports.
+     */
+    synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (SystemClock.elapsedRealtime() < openUntil) return false;
+                state = State.HALF_OPEN;
+                Log.d(TAG, "Cool-down over, probing the rates API");
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // The API answered, even if only with a client error; it is reachable
+    synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            Log.d(TAG, "Rates API reachable again, closing");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        timesOpened = 0;
+    }
+
+    // Timeouts, connection errors and server errors
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= FAILURE_THRESHOLD) {
+            long coolDown = withJitter(Math.min(MAX_COOL_DOWN_MS, BASE_COOL_DOWN_MS << Math.min(timesOpened, 10)));
+            timesOpened++;
+            state = State.OPEN;
+            openUntil = SystemClock.elapsedRealtime() + coolDown;
+            Log.w(TAG, "Rates API failing, not calling it for " + coolDown / 1000 + "s");
+        }
+    }
+
+    // Delay before retry number attempt (0 based): exponential, with jitter so clients do not retry in step
+    static long retryDelay(int attempt) {
+        return withJitter(Math.min(MAX_RETRY_DELAY_MS, BASE_RETRY_DELAY_MS << Math.min(attempt, 10)));
+    }
+
+    // Somewhere between half of delay and all of it
+    private static long withJitter(long delay) {
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+}
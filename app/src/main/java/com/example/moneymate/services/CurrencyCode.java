@@ -0,0 +1,50 @@
+package com.example.moneymate.services;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The currencies the app can display. The ordinal indexes the cross-rate table in
+ * {@link RateSnapshot}, so conversions between these need no map lookups.
+ */
+public enum CurrencyCode {
+    IDR, USD, EUR, GBP, JPY, AUD, CAD, CHF, CNY, SGD,
+    KRW, THB, MYR, PHP, VND, INR, HKD, NZD, SEK, NOK;
+
+    private static final CurrencyCode[] VALUES = values();
+    private static final Map<String, CurrencyCode> BY_CODE = new HashMap<>();
+    // Frankfurter publishes no rate for these; asking for one fails the request
+    private static final Set<CurrencyCode> NOT_PUBLISHED = EnumSet.of(VND);
+
+    static {
+        for (CurrencyCode code : VALUES) {
+            BY_CODE.put(code.name(), code);
+        }
+    }
+
+    public static int count() {
+        return VALUES.length;
+    }
+
+    static CurrencyCode byOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    // null for codes the app does not know, instead of valueOf's exception
+    public static CurrencyCode fromCode(String code) {
+        return code != null ? BY_CODE.get(code) : null;
+    }
+
+    // The API's to= parameter: every currency with published rates except the base
+    static String apiSymbols(CurrencyCode base) {
+        StringBuilder symbols = new StringBuilder();
+        for (CurrencyCode code : VALUES) {
+            if (code == base || NOT_PUBLISHED.contains(code)) continue;
+            if (symbols.length() > 0) symbols.append(',');
+            symbols.append(code.name());
+        }
+        return symbols.toString();
+    }
+}
@@ -2,8 +2,11 @@ package com.example.moneymate.services;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
+import com.example.moneymate.database.DatabaseHelper;
 import com.example.moneymate.utils.NetworkUtils;
 import com.example.moneymate.models.ExchangeRateResponse;
 import com.google.gson.Gson;
@@ -14,23 +17,63 @@ import retrofit2.Callback;
 import retrofit2.Response;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * App-scoped exchange-rate repository. There is one instance per process, and
+ * the cached rates are decoded once. Every screen reads the same immutable
+ * {@link RateSnapshot}, which is swapped as a whole when new rates arrive.
+ */
 public class CurrencyService {
     private static final String TAG = "CurrencyService";
-    private static final String PREFS_NAME = "CurrencyPrefs";
-    private static final String KEY_RATES = "exchange_rates";
-    private static final String KEY_LAST_UPDATE = "last_update";
-    private static final long CACHE_DURATION = 3600000; // 1 hour in milliseconds
+    // Where rates were cached before RateSnapshotFile; read once to carry them over
+    private static final String LEGACY_PREFS_NAME = "CurrencyPrefs";
+    private static final String LEGACY_KEY_RATES = "exchange_rates";
+    private static final String LEGACY_KEY_LAST_UPDATE = "last_update";
+    // Rates younger than this are served from memory without asking the API.
+    // Older ones are still served at once, while a background request revalidates them.
+    private static final long FRESHNESS_WINDOW = 10 * 60 * 1000; // 10 minutes
 
-    private Context context;
-    private SharedPreferences prefs;
-    private Map<String, Double> exchangeRates;
-    private ApiService apiService;
+    // Failed requests are retried in the background this many times, with growing delays
+    private static final int MAX_RETRIES = 3;
+
+    // Only the currencies the app can show are requested
+    private static final String RATE_SYMBOLS = CurrencyCode.apiSymbols(CurrencyCode.EUR);
+
+    // Background revalidation and retries have nobody waiting on them; the new snapshot is enough
+    private static final CurrencyCallback REVALIDATE_CALLBACK = new CurrencyCallback() {
+        @Override
+        public void onSuccess(Map<String, Double> rates) {}
+
+        @Override
+        public void onError(String error) {}
+
+        @Override
+        public void onNetworkError() {}
+    };
 
     // Currency names mapping
-    private Map<String, String> currencyNames;
+    private static final Map<String, String> CURRENCY_NAMES = createCurrencyNames();
+    private static final String[] AVAILABLE_CURRENCIES = CURRENCY_NAMES.values().toArray(new String[0]);
+
+    private static volatile CurrencyService instance;
+
+    private final Context context;
+    private final RateSnapshotFile snapshotFile;
+    private final ApiService apiService;
+    private final HistoricalRates historicalRates;
+    // Shared with HistoricalRates; both call the same API
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private final Handler retryHandler = new Handler(Looper.getMainLooper());
+    private volatile RateSnapshot snapshot = RateSnapshot.EMPTY;
+
+    // Callers waiting on the request in flight; all of them get its result
+    private final List<CurrencyCallback> pendingCallbacks = new ArrayList<>();
 
     public interface CurrencyCallback {
         void onSuccess(Map<String, Double> rates);
@@ -38,17 +81,27 @@ public class CurrencyService {
         void onNetworkError(); // New callback for network errors
     }
 
-    public CurrencyService(Context context) {
+    public static CurrencyService getInstance(Context context) {
+        if (instance == null) {
+            synchronized (CurrencyService.class) {
+                if (instance == null) {
+                    instance = new CurrencyService(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private CurrencyService(Context context) {
         this.context = context;
-        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        this.apiService = RetrofitClient.getClient();
-        this.exchangeRates = new HashMap<>();
-        initializeCurrencyNames();
+        this.snapshotFile = new RateSnapshotFile(context);
+        this.apiService = RetrofitClient.getClient(context);
+        this.historicalRates = new HistoricalRates(apiService, DatabaseHelper.getInstance(context), circuitBreaker);
         loadCachedRates();
     }
 
-    private void initializeCurrencyNames() {
-        currencyNames = new HashMap<>();
+    private static Map<String, String> createCurrencyNames() {
+        Map<String, String> currencyNames = new HashMap<>();
         currencyNames.put("USD", "USD - Amerika Serikat");
         currencyNames.put("EUR", "EUR - Eropa");
         currencyNames.put("GBP", "GBP - Inggris");
@@ -69,112 +122,246 @@ public class CurrencyService {
         currencyNames.put("NZD", "NZD - Selandia Baru");
         currencyNames.put("SEK", "SEK - Swedia");
         currencyNames.put("NOK", "NOK - Norwegia");
+        return Collections.unmodifiableMap(currencyNames);
     }
 
     public String[] getAvailableCurrencies() {
-        return currencyNames.values().toArray(new String[0]);
+        return AVAILABLE_CURRENCIES.clone();
     }
 
+    public RateSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private void publish(RateSnapshot newSnapshot) {
+        snapshot = newSnapshot;
+    }
+
+    // Defaults fill in whatever the current snapshot is missing
+    private RateSnapshot publishDefaults() {
+        RateSnapshot withDefaults = snapshot.withFallback(getDefaultRates());
+        publish(withDefaults);
+        return withDefaults;
+    }
+
+    // Stale rates are kept: last known real rates beat the hardcoded defaults
     private void loadCachedRates() {
+        if (!snapshotFile.exists()) {
+            migrateLegacyCache();
+            return;
+        }
+        RateSnapshot cached = snapshotFile.read();
+        if (cached != null && !cached.isEmpty()) {
+            publish(cached);
+            Log.d(TAG, "Loaded cached exchange rates");
+        }
+    }
+
+    // Move rates cached as JSON in SharedPreferences by older versions into the snapshot file
+    private void migrateLegacyCache() {
         try {
-            long lastUpdate = prefs.getLong(KEY_LAST_UPDATE, 0);
-            long currentTime = System.currentTimeMillis();
-
-            if (currentTime - lastUpdate < CACHE_DURATION) {
-                String ratesJson = prefs.getString(KEY_RATES, "");
-                if (!ratesJson.isEmpty()) {
-                    Type type = new TypeToken<Map<String, Double>>(){}.getType();
-                    Map<String, Double> cachedRates = new Gson().fromJson(ratesJson, type);
-                    if (cachedRates != null) {
-                        exchangeRates.clear();
-                        exchangeRates.putAll(cachedRates);
-                        Log.d(TAG, "Loaded cached exchange rates");
-                    }
-                }
+            SharedPreferences prefs = context.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE);
+            String ratesJson = prefs.getString(LEGACY_KEY_RATES, "");
+            if (ratesJson.isEmpty()) return;
+
+            Type type = new TypeToken<Map<String, Double>>(){}.getType();
+            Map<String, Double> cachedRates = new Gson().fromJson(ratesJson, type);
+            if (cachedRates != null) {
+                RateSnapshot cached = new RateSnapshot(cachedRates, prefs.getLong(LEGACY_KEY_LAST_UPDATE, 0));
+                publish(cached);
+                cacheRates(cached);
+                Log.d(TAG, "Migrated cached exchange rates to snapshot file");
             }
+            prefs.edit().remove(LEGACY_KEY_RATES).remove(LEGACY_KEY_LAST_UPDATE).apply();
         } catch (Exception e) {
-            Log.e(TAG, "Error loading cached rates: " + e.getMessage());
+            Log.e(TAG, "Error migrating cached rates: " + e.getMessage());
         }
     }
 
     /**
-     * Check if network is available before making API call
+     * Rates fetched within the freshness window are returned right away. Older
+     * fetched rates are also returned right away, and a background request
+     * revalidates them for the next caller. Only without any fetched rates does
+     * the caller wait for the network. Callers arriving while a request is in
+     * flight share it instead of starting their own.
      */
     public void getExchangeRates(CurrencyCallback callback) {
+        RateSnapshot current = snapshot;
+        if (isFresh(current)) {
+            callback.onSuccess(current.getRates());
+            return;
+        }
+        if (!current.isEmpty() && current.getFetchedAt() > 0) {
+            callback.onSuccess(current.getRates());
+            revalidate();
+            return;
+        }
+        fetchExchangeRates(callback);
+    }
+
+    private void revalidate() {
+        if (!NetworkUtils.isNetworkAvailable(context)) return;
+        Log.d(TAG, "Serving stale rates, revalidating in background");
+        fetchExchangeRates(REVALIDATE_CALLBACK);
+    }
+
+    // Skip the freshness window, e.g. when the user taps refresh
+    public void refreshExchangeRates(CurrencyCallback callback) {
+        fetchExchangeRates(callback);
+    }
+
+    private static boolean isFresh(RateSnapshot rates) {
+        return rates.getFetchedAt() > 0
+                && System.currentTimeMillis() - rates.getFetchedAt() < FRESHNESS_WINDOW;
+    }
+
+    /**
+     * Check if network is available before making API call
+     */
+    private void fetchExchangeRates(CurrencyCallback callback) {
         // Check network availability first
         if (!NetworkUtils.isNetworkAvailable(context)) {
             Log.w(TAG, "No network connection available");
+            RateRefreshWorker.refreshWhenOnline(context);
 
             // Try to use cached rates as fallback
-            if (!exchangeRates.isEmpty()) {
+            RateSnapshot current = snapshot;
+            if (!current.isEmpty()) {
                 Log.d(TAG, "Using cached rates due to no network");
-                callback.onSuccess(exchangeRates);
+                callback.onSuccess(current.getRates());
                 return;
             }
 
             // If no cached rates available, use default rates and notify about network issue
-            Map<String, Double> defaultRates = getDefaultRates();
-            exchangeRates.putAll(defaultRates);
+            publishDefaults();
             callback.onNetworkError(); // New callback for network error
             return;
         }
 
+        if (joinPendingRequest(callback)) return;
+        requestRates(0);
+    }
+
+    // Returns true when a request is already in flight and the callback will get its result
+    private boolean joinPendingRequest(CurrencyCallback callback) {
+        synchronized (pendingCallbacks) {
+            pendingCallbacks.add(callback);
+            if (pendingCallbacks.size() > 1) {
+                Log.d(TAG, "Joining exchange rate request already in flight");
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private void requestRates(int attempt) {
+        if (!circuitBreaker.allowRequest()) {
+            Log.w(TAG, "Rates API is failing, serving last known rates");
+            handleApiFailure(takePendingCallbacks());
+            return;
+        }
+
         Log.d(TAG, "Network available, fetching rates from API");
 
         // Try to get rates from EUR base (Frankfurter API default)
-        apiService.getRates("EUR").enqueue(new Callback<ExchangeRateResponse>() {
+        apiService.getRates("EUR", RATE_SYMBOLS).enqueue(new Callback<ExchangeRateResponse>() {
             @Override
             public void onResponse(Call<ExchangeRateResponse> call, Response<ExchangeRateResponse> response) {
+                // Rate limiting and server errors are worth retrying, other errors are not
+                if (response.code() == 429 || response.code() >= 500) {
+                    Log.e(TAG, "API response not successful: " + response.code());
+                    onRequestFailed(attempt);
+                    return;
+                }
+                circuitBreaker.onSuccess();
+
                 if (response.isSuccessful() && response.body() != null) {
                     ExchangeRateResponse rateResponse = response.body();
-                    Map<String, Double> rates = rateResponse.getRates();
+                    double[] rates = rateResponse.getRates() != null
+                            ? rateResponse.getRates() : RateSnapshot.newRateArray();
 
                     // Add EUR as base currency (rate = 1.0)
-                    rates.put("EUR", 1.0);
+                    rates[CurrencyCode.EUR.ordinal()] = 1.0;
 
-                    // Store rates for conversion
-                    exchangeRates.clear();
-                    exchangeRates.putAll(rates);
+                    // Store rates for conversion; currencies missing from the response keep their last rate
+                    RateSnapshot fetched = new RateSnapshot(rates, System.currentTimeMillis())
+                            .withFallback(snapshot);
+                    publish(fetched);
 
                     // Cache the rates
-                    cacheRates(rates);
+                    cacheRates(fetched);
 
-                    Log.d(TAG, "Successfully loaded " + rates.size() + " exchange rates");
-                    callback.onSuccess(rates);
+                    Log.d(TAG, "Successfully loaded " + fetched.getRates().size() + " exchange rates");
+                    for (CurrencyCallback pending : takePendingCallbacks()) {
+                        pending.onSuccess(fetched.getRates());
+                    }
                 } else {
                     Log.e(TAG, "API response not successful: " + response.code());
-                    handleApiFailure(callback);
+                    handleApiFailure(takePendingCallbacks());
                 }
             }
 
             @Override
             public void onFailure(Call<ExchangeRateResponse> call, Throwable t) {
                 Log.e(TAG, "API call failed: " + t.getMessage());
-                handleApiFailure(callback);
+                onRequestFailed(attempt);
             }
         });
     }
 
+    /**
+     * Nobody waits on retries: the callers get the last good rates right away,
+     * and the request is tried again in the background after a jittered,
+     * growing delay, until the circuit breaker opens or retries run out.
+     */
+    private void onRequestFailed(int attempt) {
+        circuitBreaker.onFailure();
+        handleApiFailure(takePendingCallbacks());
+        if (attempt < MAX_RETRIES) {
+            retryHandler.postDelayed(() -> retryRates(attempt + 1), CircuitBreaker.retryDelay(attempt));
+        }
+    }
+
+    private void retryRates(int attempt) {
+        if (!NetworkUtils.isNetworkAvailable(context)) return;
+        if (joinPendingRequest(REVALIDATE_CALLBACK)) return;
+        Log.d(TAG, "Retrying exchange rate request, attempt " + attempt);
+        requestRates(attempt);
+    }
+
+    private List<CurrencyCallback> takePendingCallbacks() {
+        synchronized (pendingCallbacks) {
+            List<CurrencyCallback> callbacks = new ArrayList<>(pendingCallbacks);
+            pendingCallbacks.clear();
+            return callbacks;
+        }
+    }
+
     /**
      * Handle API failure by using fallback options
      */
-    private void handleApiFailure(CurrencyCallback callback) {
+    private void handleApiFailure(List<CurrencyCallback> callbacks) {
         // Try to use cached rates as fallback
-        if (!exchangeRates.isEmpty()) {
+        RateSnapshot current = snapshot;
+        if (!current.isEmpty()) {
             Log.d(TAG, "Using cached rates as fallback");
-            callback.onSuccess(exchangeRates);
+            for (CurrencyCallback callback : callbacks) {
+                callback.onSuccess(current.getRates());
+            }
         } else {
             // Check if it's a network issue
             if (!NetworkUtils.isNetworkAvailable(context)) {
                 // Provide default rates and notify about network issue
-                Map<String, Double> defaultRates = getDefaultRates();
-                exchangeRates.putAll(defaultRates);
-                callback.onNetworkError();
+                publishDefaults();
+                for (CurrencyCallback callback : callbacks) {
+                    callback.onNetworkError();
+                }
             } else {
                 // Network is available but API failed, use default rates
-                Map<String, Double> defaultRates = getDefaultRates();
-                exchangeRates.putAll(defaultRates);
-                callback.onSuccess(defaultRates);
+                Map<String, Double> defaultRates = publishDefaults().getRates();
+                for (CurrencyCallback callback : callbacks) {
+                    callback.onSuccess(defaultRates);
+                }
             }
         }
     }
@@ -197,68 +384,88 @@ public class CurrencyService {
         return defaultRates;
     }
 
-    private void cacheRates(Map<String, Double> rates) {
-        try {
-            SharedPreferences.Editor editor = prefs.edit();
-            editor.putLong(KEY_LAST_UPDATE, System.currentTimeMillis());
-            // Serialize rates map to JSON string
-            String ratesJson = new Gson().toJson(rates);
-            editor.putString(KEY_RATES, ratesJson);
-            editor.apply();
-            Log.d(TAG, "Exchange rates cached successfully");
-        } catch (Exception e) {
-            Log.e(TAG, "Error caching rates: " + e.getMessage());
-        }
+    private void cacheRates(RateSnapshot rates) {
+        snapshotFile.writeAsync(rates);
     }
 
     public double convertCurrency(double amount, String fromCurrency, String toCurrency) {
-        try {
-            Log.d(TAG, String.format("Converting %.2f from %s to %s", amount, fromCurrency, toCurrency));
-
-            if (fromCurrency.equals(toCurrency)) {
-                return amount;
-            }
-
-            if (exchangeRates.isEmpty()) {
-                Log.w(TAG, "No exchange rates available, using default rates");
-                exchangeRates.putAll(getDefaultRates());
-            }
+        if (fromCurrency.equals(toCurrency)) {
+            return amount;
+        }
 
-            // Get rates relative to EUR (base currency from Frankfurter API)
-            Double fromRate = exchangeRates.get(fromCurrency);
-            Double toRate = exchangeRates.get(toCurrency);
+        CurrencyCode from = CurrencyCode.fromCode(fromCurrency);
+        CurrencyCode to = CurrencyCode.fromCode(toCurrency);
+        if (from != null && to != null) {
+            return convert(amount, from, to);
+        }
 
-            if (fromRate == null || toRate == null) {
-                Log.e(TAG, String.format("Missing exchange rate: %s=%s, %s=%s",
-                        fromCurrency, fromRate, toCurrency, toRate));
+        // Snapshots only hold CurrencyCode currencies
+        Log.e(TAG, "Missing exchange rate for " + fromCurrency + " or " + toCurrency);
+        // Fallback: if one of the currencies is missing, return original amount
+        return amount;
+    }
 
-                // Fallback: if one of the currencies is missing, return original amount
-                return amount;
-            }
+    /**
+     * Convert through the snapshot's cross-rate table. No boxing, logging or
+     * allocation, so it is safe to call per row while rendering. Returns the
+     * amount unchanged when a rate is missing.
+     */
+    public double convert(double amount, CurrencyCode from, CurrencyCode to) {
+        double factor = currentRates().crossRate(from, to);
+        return Double.isNaN(factor) ? amount : amount * factor;
+    }
 
-            // Convert: Amount in FromCurrency -> EUR -> ToCurrency
-            // Formula: (amount / fromRate) * toRate
-            double result = (amount / fromRate) * toRate;
+    // Convert every amount in place with a single rate lookup, for lists and charts
+    public void convertAll(double[] amounts, CurrencyCode from, CurrencyCode to) {
+        double factor = currentRates().crossRate(from, to);
+        if (Double.isNaN(factor) || factor == 1) return;
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] *= factor;
+        }
+    }
 
-            Log.d(TAG, String.format("Conversion result: %.2f %s = %.6f %s (rates: %s=%.6f, %s=%.6f)",
-                    amount, fromCurrency, result, toCurrency, fromCurrency, fromRate, toCurrency, toRate));
+    /**
+     * Convert at the rates of the given day, for amounts recorded on that day.
+     * Only reads memory, so it is safe per row; days not prefetched yet, and
+     * today, use the latest rates instead.
+     */
+    public double convertOn(double amount, CurrencyCode from, CurrencyCode to, long epochDay) {
+        if (from == to) return amount;
+        double factor = historicalRates.crossRate(from, to, epochDay);
+        return Double.isNaN(factor) ? convert(amount, from, to) : amount * factor;
+    }
 
-            return result;
+    /**
+     * Load the daily rates of a date range for {@link #convertOn}, from the
+     * database or, for days never fetched, from the API. Completes with true
+     * when new rates became available, so converted amounts should be redrawn.
+     */
+    public CompletableFuture<Boolean> prefetchHistoricalRates(long firstEpochDay, long lastEpochDay) {
+        return historicalRates.prefetch(firstEpochDay, lastEpochDay, NetworkUtils.isNetworkAvailable(context));
+    }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error in currency conversion: " + e.getMessage(), e);
-            return amount; // Return original amount if conversion fails
+    private RateSnapshot currentRates() {
+        RateSnapshot rates = snapshot;
+        if (rates.isEmpty()) {
+            Log.w(TAG, "No exchange rates available, using default rates");
+            rates = publishDefaults();
         }
+        return rates;
     }
 
     // Method to check if rates are available
     public boolean hasRates() {
-        return !exchangeRates.isEmpty();
+        return !snapshot.isEmpty();
+    }
+
+    // Rates fetched within the freshness window, so no request would be made for them
+    public boolean hasFreshRates() {
+        return isFresh(snapshot);
     }
 
     // Method to get current exchange rates
     public Map<String, Double> getCurrentRates() {
-        return new HashMap<>(exchangeRates);
+        return new HashMap<>(snapshot.getRates());
     }
 
     /**
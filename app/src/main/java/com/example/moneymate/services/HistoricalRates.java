@@ -0,0 +1,328 @@
+package com.example.moneymate.services;
+
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.example.moneymate.database.DatabaseHelper;
+import com.example.moneymate.database.DatabaseScheduler;
+import com.example.moneymate.models.TimeSeriesResponse;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Daily exchange rates for converting a transaction at the rate of its own date.
+ *
+ * Lookups only read memory: the days loaded so far, plus the date spans they
+ * cover. {@link #prefetch} fills a date range in before it is needed, first from
+ * the exchange_rates table and then, for spans the table does not have, with one
+ * time series request per missing span.
+ */
+final class HistoricalRates {
+    private static final String TAG = "HistoricalRates";
+    private static final String BASE_CURRENCY = "EUR";
+    private static final String RATE_SYMBOLS = CurrencyCode.apiSymbols(CurrencyCode.EUR);
+    // Frankfurter has no rates before this day
+    private static final long FIRST_RATE_DAY = LocalDate.of(1999, 1, 4).toEpochDay();
+    // A day uses the rates of the last business day before it, if that is this close
+    private static final long MAX_DAYS_WITHOUT_RATES = 7;
+    // Column names of the rate arrays, for the exchange_rates table
+    private static final String[] CURRENCY_CODES = currencyCodes();
+
+    private final ApiService apiService;
+    private final DatabaseHelper dbHelper;
+    private final CircuitBreaker circuitBreaker;
+    private final DatabaseScheduler scheduler = DatabaseScheduler.getInstance();
+
+    // All fields below are guarded by this
+    // Rates per euro by epoch day, indexed by CurrencyCode ordinal; NaN if missing
+    private final TreeMap<Long, double[]> perEuroByDay = new TreeMap<>();
+    // Date spans in memory, start day -> end day, merged so they never touch
+    private final TreeMap<Long, Long> loadedSpans = new TreeMap<>();
+    // Date spans in the exchange_rates table; read on first use, null until then
+    private TreeMap<Long, Long> storedSpans;
+    // Requests in flight by start day, so overlapping prefetches share them
+    private final TreeMap<Long, PendingFetch> pendingFetches = new TreeMap<>();
+
+    private static final class PendingFetch {
+        final long endDay;
+        final CompletableFuture<Boolean> future;
+
+        PendingFetch(long endDay, CompletableFuture<Boolean> future) {
+            this.endDay = endDay;
+            this.future = future;
+        }
+    }
+
+    private static String[] currencyCodes() {
+        String[] codes = new String[CurrencyCode.count()];
+        for (CurrencyCode code : CurrencyCode.values()) {
+            codes[code.ordinal()] = code.name();
+        }
+        return codes;
+    }
+
+    HistoricalRates(ApiService apiService, DatabaseHelper dbHelper, CircuitBreaker circuitBreaker) {
+        this.apiService = apiService;
+        this.dbHelper = dbHelper;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Factor that converts an amount in from into to at the rates of the given
+     * day, or NaN when that day is not in memory. Never touches disk or network.
+     */
+    synchronized double crossRate(CurrencyCode from, CurrencyCode to, long epochDay) {
+        if (!contains(loadedSpans, epochDay)) return Double.NaN;
+        Map.Entry<Long, double[]> day = perEuroByDay.floorEntry(epochDay);
+        if (day == null || epochDay - day.getKey() > MAX_DAYS_WITHOUT_RATES) return Double.NaN;
+        double[] perEuro = day.getValue();
+        return perEuro[to.ordinal()] / perEuro[from.ordinal()];
+    }
+
+    /**
+     * Make the rates from firstDay to lastDay available to {@link #crossRate}.
+     * Completes with true when rates that were not in memory before were loaded,
+     * and with false when there was nothing to load or the request failed.
+     * From today on the latest rates apply, so those days are never fetched here.
+     * Without a network only the stored rates are loaded.
+     */
+    CompletableFuture<Boolean> prefetch(long firstDay, long lastDay, boolean useNetwork) {
+        long start = Math.max(firstDay, FIRST_RATE_DAY);
+        // Today's rates may not be published yet
+        long end = Math.min(lastDay, LocalDate.now().toEpochDay() - 1);
+        if (start > end) return CompletableFuture.completedFuture(false);
+        synchronized (this) {
+            if (gaps(loadedSpans, start, end).isEmpty()) return CompletableFuture.completedFuture(false);
+        }
+
+        return scheduler.read(DatabaseScheduler.Priority.BACKGROUND, () -> loadStored(start, end))
+                .thenCompose(loadedFromTable -> !useNetwork
+                        ? CompletableFuture.completedFuture(loadedFromTable)
+                        : fetchMissing(start, end).thenApply(fetched -> loadedFromTable || fetched));
+    }
+
+    // Database thread: copy the stored part of the range into memory
+    private boolean loadStored(long start, long end) {
+        TreeMap<Long, Long> stored = copyStoredSpans();
+        List<long[]> notLoaded;
+        synchronized (this) {
+            notLoaded = gaps(loadedSpans, start, end);
+        }
+
+        boolean loaded = false;
+        for (long[] gap : notLoaded) {
+            for (long[] span : overlaps(stored, gap[0], gap[1])) {
+                Map<Long, double[]> days = new HashMap<>();
+                // Reach back far enough that a span starting on a weekend finds the Friday before
+                dbHelper.visitExchangeRates(span[0] - MAX_DAYS_WITHOUT_RATES, span[1],
+                        (epochDay, currency, rate) -> putRate(days, epochDay, currency, rate));
+                synchronized (this) {
+                    perEuroByDay.putAll(days);
+                    addSpan(loadedSpans, span[0], span[1]);
+                }
+                loaded = true;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * A copy of the stored spans, safe to iterate while store() adds to the original.
+     * The first call reads them from the table without holding the lock, so
+     * crossRate() on the main thread never waits for that query.
+     */
+    private TreeMap<Long, Long> copyStoredSpans() {
+        boolean loaded;
+        synchronized (this) {
+            loaded = storedSpans != null;
+        }
+        if (!loaded) {
+            List<long[]> spans = dbHelper.getExchangeRateSpans();
+            synchronized (this) {
+                if (storedSpans == null) {
+                    storedSpans = new TreeMap<>();
+                    for (long[] span : spans) {
+                        addSpan(storedSpans, span[0], span[1]);
+                    }
+                }
+            }
+        }
+        synchronized (this) {
+            return new TreeMap<>(storedSpans);
+        }
+    }
+
+    // One request per span still missing, joining any request already in flight
+    private CompletableFuture<Boolean> fetchMissing(long start, long end) {
+        List<CompletableFuture<Boolean>> fetches = new ArrayList<>();
+        synchronized (this) {
+            TreeMap<Long, Long> covered = new TreeMap<>(loadedSpans);
+            for (Map.Entry<Long, PendingFetch> pending : pendingFetches.entrySet()) {
+                long pendingEnd = pending.getValue().endDay;
+                if (pending.getKey() <= end && pendingEnd >= start) {
+                    fetches.add(pending.getValue().future);
+                }
+                addSpan(covered, pending.getKey(), pendingEnd);
+            }
+            for (long[] gap : gaps(covered, start, end)) {
+                // Skipped spans stay missing and are asked for again on a later prefetch
+                if (!circuitBreaker.allowRequest()) break;
+                CompletableFuture<Boolean> future = new CompletableFuture<>();
+                pendingFetches.put(gap[0], new PendingFetch(gap[1], future));
+                fetches.add(future);
+                fetch(gap[0], gap[1], future);
+            }
+        }
+        if (fetches.isEmpty()) return CompletableFuture.completedFuture(false);
+
+        return CompletableFuture.allOf(fetches.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    boolean any = false;
+                    for (CompletableFuture<Boolean> fetch : fetches) {
+                        any |= fetch.join();
+                    }
+                    return any;
+                });
+    }
+
+    private void fetch(long start, long end, CompletableFuture<Boolean> result) {
+        Log.d(TAG, "Fetching rates from " + LocalDate.ofEpochDay(start) + " to " + LocalDate.ofEpochDay(end));
+        apiService.getTimeSeries(LocalDate.ofEpochDay(start).toString(), LocalDate.ofEpochDay(end).toString(),
+                BASE_CURRENCY, RATE_SYMBOLS).enqueue(new Callback<TimeSeriesResponse>() {
+            @Override
+            public void onResponse(Call<TimeSeriesResponse> call, Response<TimeSeriesResponse> response) {
+                if (response.code() == 429 || response.code() >= 500) {
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onSuccess();
+                }
+                TimeSeriesResponse body = response.body();
+                if (!response.isSuccessful() || body == null || body.getRates() == null) {
+                    Log.e(TAG, "Time series response not successful: " + response.code());
+                    finish(start, result, false);
+                    return;
+                }
+                // Parse and store off the main thread
+                scheduler.write(() -> store(start, end, body.getRates()))
+                        .whenComplete((ignored, error) -> {
+                            if (error != null) {
+                                Log.e(TAG, "Error storing historical rates: " + error.getMessage());
+                            }
+                            finish(start, result, error == null);
+                        });
+            }
+
+            @Override
+            public void onFailure(Call<TimeSeriesResponse> call, Throwable t) {
+                Log.e(TAG, "Time series call failed: " + t.getMessage());
+                circuitBreaker.onFailure();
+                finish(start, result, false);
+            }
+        });
+    }
+
+    private Void store(long start, long end, Map<Long, double[]> days) {
+        for (double[] perEuro : days.values()) {
+            perEuro[CurrencyCode.EUR.ordinal()] = 1.0;
+        }
+
+        dbHelper.saveExchangeRates(start, end, days, CURRENCY_CODES);
+        synchronized (this) {
+            perEuroByDay.putAll(days);
+            addSpan(loadedSpans, start, end);
+            // Not read yet; the table already has this span for when it is
+            if (storedSpans != null) {
+                addSpan(storedSpans, start, end);
+            }
+        }
+        return null;
+    }
+
+    private void finish(long start, CompletableFuture<Boolean> result, boolean loaded) {
+        synchronized (this) {
+            pendingFetches.remove(start);
+        }
+        result.complete(loaded);
+    }
+
+    private static void putRate(Map<Long, double[]> days, long epochDay, String currency, double rate) {
+        CurrencyCode code = CurrencyCode.fromCode(currency);
+        if (code == null || rate <= 0) return;
+        double[] perEuro = days.get(epochDay);
+        if (perEuro == null) {
+            perEuro = RateSnapshot.newRateArray();
+            days.put(epochDay, perEuro);
+        }
+        perEuro[code.ordinal()] = rate;
+    }
+
+    private static boolean contains(TreeMap<Long, Long> spans, long day) {
+        Map.Entry<Long, Long> span = spans.floorEntry(day);
+        return span != null && span.getValue() >= day;
+    }
+
+    // Add start..end, merging it with every span it overlaps or touches
+    @VisibleForTesting
+    static void addSpan(TreeMap<Long, Long> spans, long start, long end) {
+        Map.Entry<Long, Long> before = spans.floorEntry(start);
+        if (before != null && before.getValue() >= start - 1) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+        }
+        Map.Entry<Long, Long> next = spans.ceilingEntry(start);
+        while (next != null && next.getKey() <= end + 1) {
+            end = Math.max(end, next.getValue());
+            spans.remove(next.getKey());
+            next = spans.ceilingEntry(start);
+        }
+        spans.put(start, end);
+    }
+
+    // Parts of start..end not covered by spans
+    @VisibleForTesting
+    static List<long[]> gaps(TreeMap<Long, Long> spans, long start, long end) {
+        List<long[]> gaps = new ArrayList<>();
+        long from = start;
+        Map.Entry<Long, Long> span = spans.floorEntry(start);
+        if (span == null) span = spans.ceilingEntry(start);
+        while (span != null && span.getKey() <= end && from <= end) {
+            if (span.getKey() > from) {
+                gaps.add(new long[]{from, span.getKey() - 1});
+            }
+            from = Math.max(from, span.getValue() + 1);
+            span = spans.higherEntry(span.getKey());
+        }
+        if (from <= end) {
+            gaps.add(new long[]{from, end});
+        }
+        return gaps;
+    }
+
+    // Parts of start..end covered by spans
+    @VisibleForTesting
+    static List<long[]> overlaps(TreeMap<Long, Long> spans, long start, long end) {
+        List<long[]> overlaps = new ArrayList<>();
+        Map.Entry<Long, Long> span = spans.floorEntry(start);
+        if (span == null) span = spans.ceilingEntry(start);
+        while (span != null && span.getKey() <= end) {
+            long from = Math.max(start, span.getKey());
+            long to = Math.min(end, span.getValue());
+            if (from <= to) {
+                overlaps.add(new long[]{from, to});
+            }
+            span = spans.higherEntry(span.getKey());
+        }
+        return overlaps;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.moneymate.services;
+
+import com.example.moneymate.models.ExchangeRateResponse;
+import com.example.moneymate.models.TimeSeriesResponse;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hand-written Gson adapters for the Frankfurter responses. They read the JSON
+ * stream straight into rate arrays indexed by {@link CurrencyCode} ordinal, so
+ * decoding needs no reflection and no map of boxed doubles. Currencies the app
+ * does not know are skipped.
+ */
+final class RateJsonAdapters {
+    private RateJsonAdapters() {}
+
+    static Gson createGson() {
+        return new GsonBuilder()
+                .registerTypeAdapter(ExchangeRateResponse.class, new LatestRatesAdapter())
+                .registerTypeAdapter(TimeSeriesResponse.class, new TimeSeriesAdapter())
+                .create();
+    }
+
+    // {"amount":1.0,"base":"EUR","date":"2024-10-18","rates":{"USD":1.08,...}}
+    static final class LatestRatesAdapter extends TypeAdapter<ExchangeRateResponse> {
+        @Override
+        public ExchangeRateResponse read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ExchangeRateResponse response = new ExchangeRateResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "amount":
+                        response.setAmount(in.nextDouble());
+                        break;
+                    case "base":
+                        response.setBase(in.nextString());
+                        break;
+                    case "date":
+                        response.setDate(in.nextString());
+                        break;
+                    case "rates":
+                        response.setRates(readRates(in));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return response;
+        }
+
+        @Override
+        public void write(JsonWriter out, ExchangeRateResponse value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("amount").value(value.getAmount());
+            out.name("base").value(value.getBase());
+            out.name("date").value(value.getDate());
+            out.name("rates");
+            writeRates(out, value.getRates());
+            out.endObject();
+        }
+    }
+
+    // {"amount":1.0,"base":"EUR","start_date":"...","end_date":"...","rates":{"2024-01-02":{"USD":1.09,...},...}}
+    static final class TimeSeriesAdapter extends TypeAdapter<TimeSeriesResponse> {
+        @Override
+        public TimeSeriesResponse read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            double amount = 0;
+            String base = null;
+            String startDate = null;
+            String endDate = null;
+            Map<Long, double[]> rates = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "amount":
+                        amount = in.nextDouble();
+                        break;
+                    case "base":
+                        base = in.nextString();
+                        break;
+                    case "start_date":
+                        startDate = in.nextString();
+                        break;
+                    case "end_date":
+                        endDate = in.nextString();
+                        break;
+                    case "rates":
+                        rates = new HashMap<>();
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            long epochDay = LocalDate.parse(in.nextName()).toEpochDay();
+                            rates.put(epochDay, readRates(in));
+                        }
+                        in.endObject();
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return new TimeSeriesResponse(amount, base, startDate, endDate, rates);
+        }
+
+        @Override
+        public void write(JsonWriter out, TimeSeriesResponse value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("amount").value(value.getAmount());
+            out.name("base").value(value.getBase());
+            out.name("start_date").value(value.getStartDate());
+            out.name("end_date").value(value.getEndDate());
+            out.name("rates");
+            if (value.getRates() == null) {
+                out.nullValue();
+            } else {
+                out.beginObject();
+                // Oldest day first, the same order the API sends
+                for (Map.Entry<Long, double[]> day : new TreeMap<>(value.getRates()).entrySet()) {
+                    out.name(LocalDate.ofEpochDay(day.getKey()).toString());
+                    writeRates(out, day.getValue());
+                }
+                out.endObject();
+            }
+            out.endObject();
+        }
+    }
+
+    // {"USD":1.08,"JPY":162.1,...} into an array by CurrencyCode ordinal, NaN where absent
+    private static double[] readRates(JsonReader in) throws IOException {
+        double[] rates = RateSnapshot.newRateArray();
+        in.beginObject();
+        while (in.hasNext()) {
+            CurrencyCode code = CurrencyCode.fromCode(in.nextName());
+            if (code == null || in.peek() != JsonToken.NUMBER) {
+                in.skipValue();
+                continue;
+            }
+            rates[code.ordinal()] = in.nextDouble();
+        }
+        in.endObject();
+        return rates;
+    }
+
+    // The reverse of readRates; missing rates are left out
+    private static void writeRates(JsonWriter out, double[] rates) throws IOException {
+        if (rates == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        for (int i = 0; i < Math.min(rates.length, CurrencyCode.count()); i++) {
+            if (Double.isNaN(rates[i])) continue;
+            out.name(CurrencyCode.byOrdinal(i).name()).value(rates[i]);
+        }
+        out.endObject();
+    }
+}
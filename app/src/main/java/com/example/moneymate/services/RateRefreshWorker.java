@@ -0,0 +1,114 @@
+package com.example.moneymate.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes the exchange rates in the background, so screens opened later find
+ * them in memory or in the snapshot file instead of waiting on the network.
+ * WorkManager runs it inside Doze maintenance windows and only when its
+ * constraints hold.
+ */
+public class RateRefreshWorker extends Worker {
+    private static final String TAG = "RateRefreshWorker";
+    private static final String PERIODIC_WORK = "rate_refresh_periodic";
+    private static final String ONLINE_WORK = "rate_refresh_when_online";
+    private static final long REFRESH_INTERVAL_HOURS = 3;
+    // Longer than one request at the client's call timeout
+    private static final long FETCH_TIMEOUT_SECONDS = 60;
+
+    public RateRefreshWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Keep the rates warm every few hours on unmetered networks while the battery
+     * is not low. Safe to call on every start; an existing schedule is kept.
+     */
+    public static void schedulePeriodic(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(RateRefreshWorker.class,
+                REFRESH_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 1, TimeUnit.MINUTES)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(PERIODIC_WORK, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    // One refresh as soon as any network is back, after a fetch found none
+    public static void refreshWhenOnline(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(RateRefreshWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 1, TimeUnit.MINUTES)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(ONLINE_WORK, ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        CurrencyService currencyService = CurrencyService.getInstance(getApplicationContext());
+        if (currencyService.hasFreshRates()) {
+            return Result.success();
+        }
+
+        CountDownLatch done = new CountDownLatch(1);
+        currencyService.refreshExchangeRates(new CurrencyService.CurrencyCallback() {
+            @Override
+            public void onSuccess(Map<String, Double> rates) {
+                done.countDown();
+            }
+
+            @Override
+            public void onError(String error) {
+                done.countDown();
+            }
+
+            @Override
+            public void onNetworkError() {
+                done.countDown();
+            }
+        });
+
+        try {
+            if (!done.await(FETCH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                Log.w(TAG, "Rate refresh timed out");
+                return Result.retry();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+
+        // Callers are also answered with cached or default rates, so check what was published
+        if (currencyService.hasFreshRates()) {
+            Log.d(TAG, "Exchange rates refreshed in background");
+            return Result.success();
+        }
+        return Result.retry();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.moneymate.services;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One immutable set of exchange rates, all relative to EUR. A new snapshot is
+ * published as a whole whenever rates change, so every screen reading it sees
+ * the same, complete set. Rates are kept as a primitive array by
+ * {@link CurrencyCode} ordinal and compiled into a cross-rate table once, when
+ * the snapshot is built.
+ */
+public final class RateSnapshot {
+    static final RateSnapshot EMPTY = new RateSnapshot(newRateArray(), 0);
+
+    // Rate per euro by CurrencyCode ordinal; NaN when missing
+    private final double[] perEuro;
+    private final int size;
+    private final long fetchedAt;
+    // crossRates[from * count + to] multiplies an amount in from into to; NaN if either rate is missing
+    private final double[] crossRates;
+    // Boxed view for callers that want a map, built on first use
+    private volatile Map<String, Double> rates;
+
+    RateSnapshot(double[] perEuro, long fetchedAt) {
+        this.perEuro = Arrays.copyOf(perEuro, CurrencyCode.count());
+        int present = 0;
+        for (int i = 0; i < this.perEuro.length; i++) {
+            if (!(this.perEuro[i] > 0)) {
+                this.perEuro[i] = Double.NaN;
+            } else {
+                present++;
+            }
+        }
+        this.size = present;
+        this.fetchedAt = fetchedAt;
+        this.crossRates = compileCrossRates(this.perEuro);
+    }
+
+    RateSnapshot(Map<String, Double> rates, long fetchedAt) {
+        this(toRateArray(rates), fetchedAt);
+    }
+
+    // An array for the constructor, every rate missing
+    static double[] newRateArray() {
+        double[] rates = new double[CurrencyCode.count()];
+        Arrays.fill(rates, Double.NaN);
+        return rates;
+    }
+
+    private static double[] toRateArray(Map<String, Double> rates) {
+        double[] perEuro = newRateArray();
+        for (Map.Entry<String, Double> rate : rates.entrySet()) {
+            CurrencyCode code = CurrencyCode.fromCode(rate.getKey());
+            if (code != null && rate.getValue() != null) {
+                perEuro[code.ordinal()] = rate.getValue();
+            }
+        }
+        return perEuro;
+    }
+
+    private static double[] compileCrossRates(double[] perEuro) {
+        int count = perEuro.length;
+        double[] cross = new double[count * count];
+        for (int from = 0; from < count; from++) {
+            for (int to = 0; to < count; to++) {
+                // Same as (amount / fromRate) * toRate, folded into one factor
+                cross[from * count + to] = from == to ? 1 : perEuro[to] / perEuro[from];
+            }
+        }
+        return cross;
+    }
+
+    /**
+     * Factor that converts an amount in from into to, or NaN when the snapshot
+     * has no rate for one of them.
+     */
+    public double crossRate(CurrencyCode from, CurrencyCode to) {
+        return crossRates[from.ordinal() * CurrencyCode.count() + to.ordinal()];
+    }
+
+    public Map<String, Double> getRates() {
+        Map<String, Double> map = rates;
+        if (map == null) {
+            map = new HashMap<>(size * 2);
+            for (int i = 0; i < perEuro.length; i++) {
+                if (!Double.isNaN(perEuro[i])) {
+                    map.put(CurrencyCode.byOrdinal(i).name(), perEuro[i]);
+                }
+            }
+            map = Collections.unmodifiableMap(map);
+            rates = map;
+        }
+        return map;
+    }
+
+    // null for currencies outside CurrencyCode or without a rate
+    public Double getRate(String currency) {
+        CurrencyCode code = CurrencyCode.fromCode(currency);
+        if (code == null) return null;
+        double rate = perEuro[code.ordinal()];
+        return Double.isNaN(rate) ? null : rate;
+    }
+
+    // Rate per euro, or NaN when missing
+    public double getRate(CurrencyCode currency) {
+        return perEuro[currency.ordinal()];
+    }
+
+    // When the rates were fetched, in epoch millis; 0 for built-in defaults
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // This snapshot with the missing currencies filled in from another one
+    RateSnapshot withFallback(Map<String, Double> fallback) {
+        return withFallback(new RateSnapshot(fallback, 0));
+    }
+
+    // Keeps this snapshot's fetch time, e.g. when a fetch returned only some currencies
+    RateSnapshot withFallback(RateSnapshot fallback) {
+        double[] merged = fallback.perEuro.clone();
+        for (int i = 0; i < perEuro.length; i++) {
+            if (!Double.isNaN(perEuro[i])) {
+                merged[i] = perEuro[i];
+            }
+        }
+        return new RateSnapshot(merged, fetchedAt);
+    }
+}
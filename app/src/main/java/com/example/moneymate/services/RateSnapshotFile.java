@@ -0,0 +1,122 @@
+package com.example.moneymate.services;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latest rates on disk as a small binary file, restored at cold start with
+ * one read and no parsing beyond fixed-size fields.
+ *
+ * Layout, big-endian: int magic, int format version, long fetchedAt, int count,
+ * then count entries of (short CurrencyCode ordinal, double rate per euro).
+ * A file with another magic or version is ignored and the rates are fetched again.
+ */
+final class RateSnapshotFile {
+    private static final String TAG = "RateSnapshotFile";
+    private static final String FILE_NAME = "exchange_rates.bin";
+    private static final int MAGIC = 0x4D4D5253; // "MMRS"
+    // Bump when the layout changes; CurrencyCode ordinals are part of it, so adding
+    // a currency is fine but reordering or removing one needs a new version
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+    private static final int ENTRY_BYTES = 2 + 8;
+
+    // Writes leave the caller's thread; one at a time, so the newest snapshot lands last
+    private static final ThreadPoolExecutor WRITE_EXECUTOR = new ThreadPoolExecutor(1, 1,
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> new Thread(runnable, "rate-snapshot"));
+
+    static {
+        WRITE_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private final AtomicFile file;
+
+    RateSnapshotFile(Context context) {
+        file = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    boolean exists() {
+        return file.getBaseFile().exists();
+    }
+
+    // null when there is no snapshot or it cannot be used
+    RateSnapshot read() {
+        if (!exists()) return null;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(file.readFully());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                Log.w(TAG, "Not a rate snapshot, ignoring it");
+                return null;
+            }
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) {
+                Log.w(TAG, "Rate snapshot version " + version + " is not supported, ignoring it");
+                return null;
+            }
+            long fetchedAt = buffer.getLong();
+            int count = buffer.getInt();
+            if (count < 0 || buffer.remaining() != count * ENTRY_BYTES) {
+                Log.w(TAG, "Rate snapshot is truncated, ignoring it");
+                return null;
+            }
+
+            double[] rates = RateSnapshot.newRateArray();
+            for (int i = 0; i < count; i++) {
+                int ordinal = buffer.getShort();
+                double rate = buffer.getDouble();
+                if (ordinal >= 0 && ordinal < rates.length) {
+                    rates[ordinal] = rate;
+                }
+            }
+            return new RateSnapshot(rates, fetchedAt);
+        } catch (IOException | BufferUnderflowException e) {
+            Log.e(TAG, "Error reading rate snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Only the rates of CurrencyCode currencies are kept; the app shows no others
+    void writeAsync(RateSnapshot snapshot) {
+        WRITE_EXECUTOR.execute(() -> write(snapshot));
+    }
+
+    private void write(RateSnapshot snapshot) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + CurrencyCode.count() * ENTRY_BYTES);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(snapshot.getFetchedAt());
+        int countPosition = buffer.position();
+        buffer.putInt(0);
+
+        int count = 0;
+        for (int ordinal = 0; ordinal < CurrencyCode.count(); ordinal++) {
+            double rate = snapshot.getRate(CurrencyCode.byOrdinal(ordinal));
+            if (Double.isNaN(rate)) continue;
+            buffer.putShort((short) ordinal).putDouble(rate);
+            count++;
+        }
+        buffer.putInt(countPosition, count);
+
+        // AtomicFile writes next to the old file and renames, so a crash never leaves half a snapshot
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            out.write(buffer.array(), 0, buffer.position());
+            file.finishWrite(out);
+            Log.d(TAG, "Exchange rates cached successfully");
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing rate snapshot: " + e.getMessage());
+            if (out != null) {
+                file.failWrite(out);
+            }
+        }
+    }
+}
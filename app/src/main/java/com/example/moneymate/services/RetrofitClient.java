@@ -1,35 +1,58 @@
 package com.example.moneymate.services;
 
+import android.content.Context;
+
+import com.example.moneymate.BuildConfig;
+
+import okhttp3.Cache;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
+
+import java.io.File;
 import java.util.concurrent.TimeUnit;
 
 public class RetrofitClient {
     private static Retrofit retrofit;
+    private static ApiService apiService;
     private static final String BASE_URL = "https://api.frankfurter.app/";
+    private static final String HTTP_CACHE_DIR = "http";
+    private static final long HTTP_CACHE_SIZE = 5L * 1024 * 1024; // 5 MB
 
-    public static ApiService getClient() {
-        if (retrofit == null) {
-            // Create logging interceptor
-            HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-            loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-
-            // Create OkHttp client with timeouts and logging
-            OkHttpClient okHttpClient = new OkHttpClient.Builder()
-                    .addInterceptor(loggingInterceptor)
-                    .connectTimeout(30, TimeUnit.SECONDS)
-                    .readTimeout(30, TimeUnit.SECONDS)
-                    .writeTimeout(30, TimeUnit.SECONDS)
-                    .build();
+    // Retrofit builds the service proxy by reflection, so it is created once and shared
+    public static synchronized ApiService getClient(Context context) {
+        if (apiService == null) {
+            // Disk cache that follows the API's Cache-Control headers and revalidates
+            // with If-None-Match / If-Modified-Since, so an unchanged day costs a 304
+            Cache cache = new Cache(new File(context.getCacheDir(), HTTP_CACHE_DIR), HTTP_CACHE_SIZE);
+
+            // Short timeouts so a dead network fails fast and callers fall back to cached
+            // rates; the read timeout is tuned per request from observed response times
+            OkHttpClient.Builder clientBuilder = new OkHttpClient.Builder()
+                    .cache(cache)
+                    .connectTimeout(5, TimeUnit.SECONDS)
+                    .readTimeout(15, TimeUnit.SECONDS)
+                    .writeTimeout(10, TimeUnit.SECONDS)
+                    .callTimeout(20, TimeUnit.SECONDS)
+                    .addInterceptor(new AdaptiveTimeoutInterceptor());
+
+            // BODY logging buffers every response in memory, so release builds log nothing
+            if (BuildConfig.DEBUG) {
+                HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
+                loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
+                clientBuilder.addInterceptor(loggingInterceptor);
+            }
+            OkHttpClient okHttpClient = clientBuilder.build();
 
             retrofit = new Retrofit.Builder()
                     .baseUrl(BASE_URL)
                     .client(okHttpClient)
-                    .addConverterFactory(GsonConverterFactory.create())
+                    // Rate responses decode through streaming adapters instead of reflection
+                    .addConverterFactory(GsonConverterFactory.create(RateJsonAdapters.createGson()))
                     .build();
+            apiService = retrofit.create(ApiService.class);
         }
-        return retrofit.create(ApiService.class);
+        return apiService;
     }
 }
\ No newline at end of file
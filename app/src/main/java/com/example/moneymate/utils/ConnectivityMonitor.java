@@ -0,0 +1,185 @@
+package com.example.moneymate.utils;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * App-scoped view of the default network. One NetworkCallback keeps an immutable
+ * {@link State} up to date, so reading it is a field access instead of binder
+ * calls into ConnectivityManager. Listeners hear about changes on the main thread.
+ */
+public final class ConnectivityMonitor {
+    private static final String TAG = "ConnectivityMonitor";
+
+    private static volatile ConnectivityMonitor instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile State state = State.DISCONNECTED;
+
+    public interface Listener {
+        void onConnectivityChanged(State state);
+    }
+
+    /**
+     * Default network as last reported by the system. Connected means it has a
+     * Wi-Fi, cellular or Ethernet transport; validated means Android confirmed
+     * it actually reaches the internet.
+     */
+    public static final class State {
+        static final State DISCONNECTED = new State(false, false, false, "No Connection");
+
+        private final boolean connected;
+        private final boolean validated;
+        private final boolean metered;
+        private final String transport;
+
+        private State(boolean connected, boolean validated, boolean metered, String transport) {
+            this.connected = connected;
+            this.validated = validated;
+            this.metered = metered;
+            this.transport = transport;
+        }
+
+        static State of(NetworkCapabilities capabilities) {
+            if (capabilities == null) return DISCONNECTED;
+            String transport;
+            if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+                transport = "WiFi";
+            } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+                transport = "Mobile Data";
+            } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+                transport = "Ethernet";
+            } else {
+                transport = "Other";
+            }
+            return new State(!transport.equals("Other"),
+                    capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED),
+                    !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED),
+                    transport);
+        }
+
+        public boolean isConnected() {
+            return connected;
+        }
+
+        public boolean isValidated() {
+            return validated;
+        }
+
+        public boolean isMetered() {
+            return metered;
+        }
+
+        // "WiFi", "Mobile Data", "Ethernet", "Other" or "No Connection"
+        public String getTransport() {
+            return transport;
+        }
+
+        boolean sameAs(State other) {
+            return connected == other.connected && validated == other.validated
+                    && metered == other.metered && transport.equals(other.transport);
+        }
+    }
+
+    public static ConnectivityMonitor getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ConnectivityMonitor.class) {
+                if (instance == null) {
+                    instance = new ConnectivityMonitor(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private ConnectivityMonitor(Context context) {
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) {
+            Log.e(TAG, "ConnectivityManager not available");
+            return;
+        }
+
+        try {
+            // Read once so the state is right before the first callback arrives
+            Network network = connectivityManager.getActiveNetwork();
+            if (network != null) {
+                state = State.of(connectivityManager.getNetworkCapabilities(network));
+            }
+
+            // Registered for the life of the process, so it is never unregistered
+            connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onCapabilitiesChanged(@NonNull Network network,
+                                                  @NonNull NetworkCapabilities capabilities) {
+                    update(State.of(capabilities));
+                }
+
+                @Override
+                public void onLost(@NonNull Network network) {
+                    update(State.DISCONNECTED);
+                }
+            });
+        } catch (Exception e) {
+            Log.e(TAG, "Error registering network callback", e);
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isConnected() {
+        return state.isConnected();
+    }
+
+    // Called on a ConnectivityManager thread
+    private void update(State newState) {
+        State oldState = state;
+        state = newState;
+        if (newState.sameAs(oldState)) return;
+
+        Log.d(TAG, "Connectivity changed: " + newState.getTransport()
+                + (newState.isValidated() ? ", validated" : "")
+                + (newState.isMetered() ? ", metered" : ""));
+        mainHandler.post(() -> {
+            for (Listener listener : listeners) {
+                listener.onConnectivityChanged(newState);
+            }
+        });
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Listen until the owner is destroyed
+    public void observe(LifecycleOwner owner, Listener listener) {
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) return;
+
+        addListener(listener);
+        lifecycle.addObserver((LifecycleEventObserver) (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                removeListener(listener);
+            }
+        });
+    }
+}
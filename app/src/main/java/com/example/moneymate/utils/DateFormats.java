@@ -0,0 +1,62 @@
+package com.example.moneymate.utils;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Shared display formatters. DateTimeFormatter is immutable and thread-safe, so
+ * one instance serves every screen and background thread. The set is rebuilt
+ * only when the device locale changes.
+ */
+public final class DateFormats {
+
+    private static volatile Formatters formatters;
+
+    private DateFormats() {}
+
+    // e.g. 05 Okt 2024, used in transaction lists and details
+    public static DateTimeFormatter day() {
+        return current().day;
+    }
+
+    // e.g. Oktober 2024, used in month headers
+    public static DateTimeFormatter month() {
+        return current().month;
+    }
+
+    // e.g. 05/10/2024, used on the date picker button
+    public static DateTimeFormatter numericDay() {
+        return current().numericDay;
+    }
+
+    // e.g. 05/10/2024 14:30, used for "last updated" labels
+    public static DateTimeFormatter numericDateTime() {
+        return current().numericDateTime;
+    }
+
+    private static Formatters current() {
+        Locale locale = Locale.getDefault();
+        Formatters cached = formatters;
+        if (cached == null || !cached.locale.equals(locale)) {
+            cached = new Formatters(locale);
+            formatters = cached;
+        }
+        return cached;
+    }
+
+    private static final class Formatters {
+        final Locale locale;
+        final DateTimeFormatter day;
+        final DateTimeFormatter month;
+        final DateTimeFormatter numericDay;
+        final DateTimeFormatter numericDateTime;
+
+        Formatters(Locale locale) {
+            this.locale = locale;
+            this.day = DateTimeFormatter.ofPattern("dd MMM yyyy", locale);
+            this.month = DateTimeFormatter.ofPattern("MMMM yyyy", locale);
+            this.numericDay = DateTimeFormatter.ofPattern("dd/MM/yyyy", locale);
+            this.numericDateTime = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm", locale);
+        }
+    }
+}
@@ -1,15 +1,13 @@
 package com.example.moneymate.utils;
 
 import android.content.Context;
-import android.net.ConnectivityManager;
-import android.net.Network;
-import android.net.NetworkCapabilities;
-import android.net.NetworkInfo;
-import android.os.Build;
-import android.util.Log;
 
+/**
+ * Network checks for callers that only need an answer now. Every method reads
+ * the state cached by {@link ConnectivityMonitor}, so they are cheap enough to
+ * call on the main thread as often as needed.
+ */
 public class NetworkUtils {
-    private static final String TAG = "NetworkUtils";
 
     /**
      * Check if device has internet connection
@@ -18,36 +16,7 @@ public class NetworkUtils {
         if (context == null) {
             return false;
         }
-
-        ConnectivityManager connectivityManager =
-                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-
-        if (connectivityManager == null) {
-            return false;
-        }
-
-        try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                Network network = connectivityManager.getActiveNetwork();
-                if (network == null) {
-                    return false;
-                }
-
-                NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(network);
-                return capabilities != null && (
-                        capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI) ||
-                                capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR) ||
-                                capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)
-                );
-            } else {
-                // For older Android versions
-                NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
-                return networkInfo != null && networkInfo.isConnected();
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error checking network availability", e);
-            return false;
-        }
+        return ConnectivityMonitor.getInstance(context).isConnected();
     }
 
     /**
@@ -57,119 +26,20 @@ public class NetworkUtils {
         if (context == null) {
             return "Unknown";
         }
-
-        ConnectivityManager connectivityManager =
-                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-
-        if (connectivityManager == null) {
-            return "Unknown";
-        }
-
-        try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                Network network = connectivityManager.getActiveNetwork();
-                if (network == null) {
-                    return "No Connection";
-                }
-
-                NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(network);
-                if (capabilities == null) {
-                    return "Unknown";
-                }
-
-                if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
-                    return "WiFi";
-                } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
-                    return "Mobile Data";
-                } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
-                    return "Ethernet";
-                } else {
-                    return "Other";
-                }
-            } else {
-                NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
-                if (networkInfo == null || !networkInfo.isConnected()) {
-                    return "No Connection";
-                }
-                return networkInfo.getTypeName();
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error getting network type", e);
-            return "Unknown";
-        }
+        return ConnectivityMonitor.getInstance(context).getState().getTransport();
     }
 
     /**
      * Check if device is connected to WiFi
      */
     public static boolean isWiFiConnected(Context context) {
-        if (context == null) {
-            return false;
-        }
-
-        ConnectivityManager connectivityManager =
-                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-
-        if (connectivityManager == null) {
-            return false;
-        }
-
-        try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                Network network = connectivityManager.getActiveNetwork();
-                if (network == null) {
-                    return false;
-                }
-
-                NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(network);
-                return capabilities != null &&
-                        capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI);
-            } else {
-                NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
-                return networkInfo != null &&
-                        networkInfo.isConnected() &&
-                        networkInfo.getType() == ConnectivityManager.TYPE_WIFI;
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error checking WiFi connection", e);
-            return false;
-        }
+        return "WiFi".equals(getNetworkType(context));
     }
 
     /**
      * Check if device is connected to mobile data
      */
     public static boolean isMobileDataConnected(Context context) {
-        if (context == null) {
-            return false;
-        }
-
-        ConnectivityManager connectivityManager =
-                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-
-        if (connectivityManager == null) {
-            return false;
-        }
-
-        try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                Network network = connectivityManager.getActiveNetwork();
-                if (network == null) {
-                    return false;
-                }
-
-                NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(network);
-                return capabilities != null &&
-                        capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR);
-            } else {
-                NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
-                return networkInfo != null &&
-                        networkInfo.isConnected() &&
-                        networkInfo.getType() == ConnectivityManager.TYPE_MOBILE;
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error checking mobile data connection", e);
-            return false;
-        }
+        return "Mobile Data".equals(getNetworkType(context));
     }
-}
\ No newline at end of file
+}
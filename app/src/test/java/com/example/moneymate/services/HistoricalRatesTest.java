@@ -0,0 +1,97 @@
+package com.example.moneymate.services;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistoricalRatesTest {
+
+    private static TreeMap<Long, Long> spans(long... bounds) {
+        TreeMap<Long, Long> spans = new TreeMap<>();
+        for (int i = 0; i < bounds.length; i += 2) {
+            HistoricalRates.addSpan(spans, bounds[i], bounds[i + 1]);
+        }
+        return spans;
+    }
+
+    private static void assertSpans(List<long[]> actual, long... expected) {
+        assertEquals(expected.length / 2, actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+            assertArrayEquals(new long[]{expected[2 * i], expected[2 * i + 1]}, actual.get(i));
+        }
+    }
+
+    @Test
+    public void addSpan_mergesOverlappingSpans() {
+        TreeMap<Long, Long> merged = spans(1, 5, 3, 8);
+        assertEquals(1, merged.size());
+        assertEquals(Long.valueOf(8), merged.get(1L));
+    }
+
+    @Test
+    public void addSpan_mergesTouchingSpans() {
+        TreeMap<Long, Long> merged = spans(6, 9, 1, 5);
+        assertEquals(1, merged.size());
+        assertEquals(Long.valueOf(9), merged.get(1L));
+    }
+
+    @Test
+    public void addSpan_keepsSeparateSpansApart() {
+        TreeMap<Long, Long> merged = spans(1, 5, 7, 9);
+        assertEquals(2, merged.size());
+        assertEquals(Long.valueOf(5), merged.get(1L));
+        assertEquals(Long.valueOf(9), merged.get(7L));
+    }
+
+    @Test
+    public void addSpan_swallowsEverySpanItCovers() {
+        TreeMap<Long, Long> merged = spans(1, 2, 4, 5, 7, 8, 12, 14);
+        HistoricalRates.addSpan(merged, 2, 7);
+        assertEquals(2, merged.size());
+        assertEquals(Long.valueOf(8), merged.get(1L));
+        assertEquals(Long.valueOf(14), merged.get(12L));
+    }
+
+    @Test
+    public void addSpan_insideExistingSpanChangesNothing() {
+        TreeMap<Long, Long> merged = spans(1, 10, 3, 4);
+        assertEquals(1, merged.size());
+        assertEquals(Long.valueOf(10), merged.get(1L));
+    }
+
+    @Test
+    public void gaps_withoutSpansIsTheWholeRange() {
+        assertSpans(HistoricalRates.gaps(new TreeMap<>(), 5, 25), 5, 25);
+    }
+
+    @Test
+    public void gaps_aroundAndBetweenSpans() {
+        assertSpans(HistoricalRates.gaps(spans(10, 20, 23, 24), 5, 30), 5, 9, 21, 22, 25, 30);
+    }
+
+    @Test
+    public void gaps_spanStartingBeforeTheRange() {
+        assertSpans(HistoricalRates.gaps(spans(1, 12), 5, 20), 13, 20);
+    }
+
+    @Test
+    public void gaps_fullyCoveredRangeHasNone() {
+        assertTrue(HistoricalRates.gaps(spans(1, 12), 5, 10).isEmpty());
+        assertTrue(HistoricalRates.gaps(spans(5, 10), 5, 10).isEmpty());
+    }
+
+    @Test
+    public void overlaps_areClippedToTheRange() {
+        assertSpans(HistoricalRates.overlaps(spans(1, 6, 9, 11, 15, 30), 4, 20), 4, 6, 9, 11, 15, 20);
+    }
+
+    @Test
+    public void overlaps_outsideTheRangeAreSkipped() {
+        assertTrue(HistoricalRates.overlaps(spans(1, 3, 21, 25), 4, 20).isEmpty());
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.moneymate.services;
+
+import com.example.moneymate.models.ExchangeRateResponse;
+import com.example.moneymate.models.TimeSeriesResponse;
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RateJsonAdaptersTest {
+    private final Gson gson = RateJsonAdapters.createGson();
+
+    private static double[] rates(CurrencyCode code, double rate, Object... more) {
+        double[] rates = RateSnapshot.newRateArray();
+        rates[code.ordinal()] = rate;
+        for (int i = 0; i < more.length; i += 2) {
+            rates[((CurrencyCode) more[i]).ordinal()] = (Double) more[i + 1];
+        }
+        return rates;
+    }
+
+    @Test
+    public void latest_readsKnownCurrenciesAndSkipsTheRest() {
+        ExchangeRateResponse response = gson.fromJson("{\"amount\":1.0,\"base\":\"EUR\",\"date\":\"2024-10-18\","
+                + "\"rates\":{\"USD\":1.08,\"XYZ\":3.5,\"JPY\":162.1},\"extra\":[1,2]}", ExchangeRateResponse.class);
+
+        assertEquals(1.0, response.getAmount(), 0);
+        assertEquals("EUR", response.getBase());
+        assertEquals("2024-10-18", response.getDate());
+        assertEquals(1.08, response.getRates()[CurrencyCode.USD.ordinal()], 0);
+        assertEquals(162.1, response.getRates()[CurrencyCode.JPY.ordinal()], 0);
+        assertTrue(Double.isNaN(response.getRates()[CurrencyCode.GBP.ordinal()]));
+    }
+
+    @Test
+    public void latest_writeLeavesOutMissingRates() {
+        ExchangeRateResponse response = new ExchangeRateResponse(1.0, "EUR", "2024-10-18",
+                rates(CurrencyCode.USD, 1.08));
+
+        String json = gson.toJson(response);
+        assertTrue(json.contains("\"USD\":1.08"));
+        assertFalse(json.contains("JPY"));
+    }
+
+    @Test
+    public void latest_roundTrip() {
+        ExchangeRateResponse original = new ExchangeRateResponse(1.0, "EUR", "2024-10-18",
+                rates(CurrencyCode.USD, 1.08, CurrencyCode.IDR, 17012.5));
+
+        ExchangeRateResponse copy = gson.fromJson(gson.toJson(original), ExchangeRateResponse.class);
+        assertEquals(original.getAmount(), copy.getAmount(), 0);
+        assertEquals(original.getBase(), copy.getBase());
+        assertEquals(original.getDate(), copy.getDate());
+        assertArrayEquals(original.getRates(), copy.getRates(), 0);
+    }
+
+    @Test
+    public void timeSeries_roundTrip() {
+        Map<Long, double[]> days = new HashMap<>();
+        long first = LocalDate.of(2024, 1, 2).toEpochDay();
+        days.put(first, rates(CurrencyCode.USD, 1.09));
+        days.put(first + 1, rates(CurrencyCode.USD, 1.1, CurrencyCode.GBP, 0.86));
+        TimeSeriesResponse original = new TimeSeriesResponse(1.0, "EUR", "2024-01-02", "2024-01-03", days);
+
+        String json = gson.toJson(original);
+        assertTrue(json.contains("\"2024-01-02\""));
+
+        TimeSeriesResponse copy = gson.fromJson(json, TimeSeriesResponse.class);
+        assertEquals("2024-01-02", copy.getStartDate());
+        assertEquals("2024-01-03", copy.getEndDate());
+        assertEquals(2, copy.getRates().size());
+        assertArrayEquals(days.get(first), copy.getRates().get(first), 0);
+        assertArrayEquals(days.get(first + 1), copy.getRates().get(first + 1), 0);
+    }
+
+    @Test
+    public void nullResponse_roundTrip() {
+        assertEquals("null", gson.toJson(null, ExchangeRateResponse.class));
+        assertNull(gson.fromJson("null", TimeSeriesResponse.class));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.moneymate.services;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RateSnapshotTest {
+
+    private static RateSnapshot snapshot(long fetchedAt, Object... rates) {
+        Map<String, Double> map = new HashMap<>();
+        for (int i = 0; i < rates.length; i += 2) {
+            map.put((String) rates[i], (Double) rates[i + 1]);
+        }
+        return new RateSnapshot(map, fetchedAt);
+    }
+
+    @Test
+    public void crossRate_sameCurrencyIsOne() {
+        RateSnapshot rates = snapshot(0, "USD", 1.08);
+        assertEquals(1.0, rates.crossRate(CurrencyCode.USD, CurrencyCode.USD), 0);
+        // Even without a rate for it
+        assertEquals(1.0, rates.crossRate(CurrencyCode.JPY, CurrencyCode.JPY), 0);
+    }
+
+    @Test
+    public void crossRate_goesThroughTheEuro() {
+        RateSnapshot rates = snapshot(0, "EUR", 1.0, "USD", 1.08, "JPY", 162.0);
+        assertEquals(1.08, rates.crossRate(CurrencyCode.EUR, CurrencyCode.USD), 1e-12);
+        assertEquals(150.0, rates.crossRate(CurrencyCode.USD, CurrencyCode.JPY), 1e-9);
+        assertEquals(1 / 150.0, rates.crossRate(CurrencyCode.JPY, CurrencyCode.USD), 1e-12);
+    }
+
+    @Test
+    public void crossRate_isNaNWhenEitherRateIsMissing() {
+        RateSnapshot rates = snapshot(0, "EUR", 1.0, "USD", 1.08);
+        assertTrue(Double.isNaN(rates.crossRate(CurrencyCode.USD, CurrencyCode.GBP)));
+        assertTrue(Double.isNaN(rates.crossRate(CurrencyCode.GBP, CurrencyCode.USD)));
+    }
+
+    @Test
+    public void nonPositiveAndUnknownRatesAreMissing() {
+        RateSnapshot rates = snapshot(0, "USD", 0.0, "GBP", -1.0, "XYZ", 2.0);
+        assertTrue(rates.isEmpty());
+        assertNull(rates.getRate("USD"));
+        assertNull(rates.getRate("XYZ"));
+        assertTrue(rates.getRates().isEmpty());
+    }
+
+    @Test
+    public void withFallback_fillsOnlyMissingRates() {
+        RateSnapshot fresh = snapshot(1000, "EUR", 1.0, "USD", 1.10);
+        RateSnapshot merged = fresh.withFallback(snapshot(0, "USD", 1.05, "GBP", 0.86));
+
+        assertEquals(1.10, merged.getRate(CurrencyCode.USD), 0);
+        assertEquals(0.86, merged.getRate(CurrencyCode.GBP), 0);
+        assertEquals(1.0, merged.getRate(CurrencyCode.EUR), 0);
+        assertTrue(Double.isNaN(merged.getRate(CurrencyCode.JPY)));
+        assertEquals(1000, merged.getFetchedAt());
+        assertEquals(0.86 / 1.10, merged.crossRate(CurrencyCode.USD, CurrencyCode.GBP), 1e-12);
+    }
+
+    @Test
+    public void getRates_listsPresentRatesOnly() {
+        Map<String, Double> map = snapshot(0, "EUR", 1.0, "USD", 1.08).getRates();
+        assertEquals(2, map.size());
+        assertEquals(Double.valueOf(1.08), map.get("USD"));
+        assertFalse(map.containsKey("JPY"));
+    }
+}